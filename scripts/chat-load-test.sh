@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# In-flight chats against a running instance, sampling heap and live threads from the actuator while they wait.
+#
+# Run it once per thread mode and compare, e.g.
+#   java -jar target/PDFChatBot.jar --spring.threads.virtual.enabled=false --app.llm.gateway.max-queued=5000 --app.cache.answers.enabled=false
+#   scripts/chat-load-test.sh sample.pdf 1000
+# and again with --spring.threads.virtual.enabled=true. On platform threads Tomcat's server.tomcat.threads.max (200)
+# caps the chats in flight, raise it to see what the memory would be without that cap. Heap is sampled without forcing
+# a GC, so compare the two runs rather than reading the absolute numbers.
+set -euo pipefail
+
+PDF=${1:?usage: chat-load-test.sh <file.pdf> [concurrent-chats]}
+CHATS=${2:-500}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+metric() {
+  curl -s "$BASE_URL/actuator/metrics/$1${2:+?tag=$2}" | grep -o '"value":[0-9.E+-]*' | head -1 | cut -d: -f2
+}
+
+# Step 1: One session per chat, uploads of the same file reuse the stored document and make no model call
+echo "Creating $CHATS sessions"
+for i in $(seq 1 "$CHATS"); do
+  curl -s -F "file=@$PDF" "$BASE_URL/api/v1/documents/upload" | grep -o '"sessionId":"[^"]*"' | cut -d'"' -f4
+done > "$WORK_DIR/sessions"
+
+HEAP_BEFORE=$(metric jvm.memory.used area:heap)
+THREADS_BEFORE=$(metric jvm.threads.live)
+
+# Step 2: Every session asks a different question at once, so none is served from the answer cache
+echo "Sending $CHATS concurrent chats"
+START=$(date +%s)
+i=0
+while read -r session; do
+  i=$((i + 1))
+  curl -s -o /dev/null -w '%{http_code}\n' -H 'Content-Type: application/json' \
+    -d "{\"sessionId\":\"$session\",\"question\":\"Question $i: what does page $i say?\"}" \
+    "$BASE_URL/api/v1/chat/message" >> "$WORK_DIR/status" &
+done < "$WORK_DIR/sessions"
+
+# Step 3: Peak heap and threads while the chats are in flight
+PEAK_HEAP=$HEAP_BEFORE
+PEAK_THREADS=$THREADS_BEFORE
+while [ "$(jobs -r | wc -l)" -gt 0 ]; do
+  HEAP=$(metric jvm.memory.used area:heap)
+  THREADS=$(metric jvm.threads.live)
+  PEAK_HEAP=$(awk -v a="$PEAK_HEAP" -v b="$HEAP" 'BEGIN { print (b > a ? b : a) }')
+  PEAK_THREADS=$(awk -v a="$PEAK_THREADS" -v b="$THREADS" 'BEGIN { print (b > a ? b : a) }')
+  sleep 1
+done
+wait
+
+echo "Finished in $(( $(date +%s) - START ))s, responses by status:"
+sort "$WORK_DIR/status" | uniq -c
+awk -v chats="$CHATS" -v before="$HEAP_BEFORE" -v peak="$PEAK_HEAP" -v threads="$PEAK_THREADS" -v tbefore="$THREADS_BEFORE" 'BEGIN {
+  delta = peak - before
+  printf "Peak heap +%.1f MB (%.1f KB per chat, %.0f chats per GB), peak live platform threads %d (+%d)\n",
+    delta / 1048576, delta / 1024 / chats, (delta > 0 ? chats / (delta / 1073741824) : 0), threads, threads - tbefore
+}'
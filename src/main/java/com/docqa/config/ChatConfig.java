@@ -0,0 +1,28 @@
+package com.docqa.config;
+
+import com.docqa.util.ThreadFactories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@Slf4j
+public class ChatConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService conversationSummaryExecutor(@Value("${app.chat.memory.workers}") int workers,
+                                                       @Value("${app.chat.memory.queue-capacity}") int queueCapacity,
+                                                       @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        // Summaries are best effort: when the queue is full the refresh is retried on a later turn
+        log.info("Conversation summary executor configured with {} workers and queue capacity {}", workers, queueCapacity);
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ThreadFactories.named("conversation-summary-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
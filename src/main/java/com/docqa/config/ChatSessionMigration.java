@@ -0,0 +1,78 @@
+package com.docqa.config;
+
+import com.docqa.model.ChatSession;
+import com.mongodb.client.result.UpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class ChatSessionMigration {
+
+    private static final String LEGACY_TEXT_FIELD = "extractedText";
+
+    private final MongoTemplate mongoTemplate;
+
+    public ChatSessionMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        stripEmbeddedText();
+        backfillMessageCount();
+    }
+
+    private void backfillMessageCount() {
+        try {
+            // Sessions created before messageCount was maintained by atomic appends
+            UpdateResult result = mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("messageCount").exists(false)),
+                    AggregationUpdate.update().set("messageCount").toValue(ArrayOperators.Size.lengthOfArray(
+                            ConditionalOperators.ifNull("messages").then(List.of()))),
+                    ChatSession.class);
+            if (result.getModifiedCount() > 0) {
+                log.info("Backfilled messageCount on {} chat sessions", result.getModifiedCount());
+            }
+        } catch (Exception e) {
+            log.error("Error backfilling messageCount on chat sessions", e);
+        }
+    }
+
+    private void stripEmbeddedText() {
+        try {
+            Criteria legacySessions = Criteria.where(LEGACY_TEXT_FIELD).exists(true);
+
+            // Measure what the embedded copies cost before removing them
+            Aggregation sizeOfLegacyText = Aggregation.newAggregation(
+                    Aggregation.match(legacySessions),
+                    context -> new Document("$group", new Document("_id", null)
+                            .append("sessions", new Document("$sum", 1))
+                            .append("bytes", new Document("$sum", new Document("$strLenBytes", "$" + LEGACY_TEXT_FIELD)))));
+            List<Document> stats = mongoTemplate.aggregate(sizeOfLegacyText, ChatSession.class, Document.class).getMappedResults();
+            if (stats.isEmpty()) {
+                return;
+            }
+
+            UpdateResult result = mongoTemplate.updateMulti(Query.query(legacySessions), new Update().unset(LEGACY_TEXT_FIELD), ChatSession.class);
+            log.info("Stripped embedded document text from {} chat sessions, freeing {} bytes",
+                    result.getModifiedCount(), stats.getFirst().get("bytes"));
+        } catch (Exception e) {
+            log.error("Error stripping embedded document text from chat sessions", e);
+        }
+    }
+
+}
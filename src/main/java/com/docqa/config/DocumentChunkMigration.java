@@ -0,0 +1,74 @@
+package com.docqa.config;
+
+import com.docqa.model.DocumentChunk;
+import com.docqa.service.document.DocumentTextService;
+import com.docqa.util.TextChunker;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Component
+@Slf4j
+public class DocumentChunkMigration {
+
+    private static final String DOCUMENTS_COLLECTION = "documents";
+    private static final String LEGACY_TEXT_FIELD = "extractedText";
+
+    private final MongoTemplate mongoTemplate;
+    private final DocumentTextService documentTextService;
+    private final int chunkSize;
+
+    public DocumentChunkMigration(MongoTemplate mongoTemplate,
+                                  DocumentTextService documentTextService,
+                                  @Value("${app.storage.chunk-size}") int chunkSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.documentTextService = documentTextService;
+        this.chunkSize = chunkSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateEmbeddedText() {
+        Query legacyDocuments = Query.query(Criteria.where(LEGACY_TEXT_FIELD).exists(true));
+        int migrated = 0;
+
+        try (Stream<Document> documents = mongoTemplate.stream(legacyDocuments, Document.class, DOCUMENTS_COLLECTION)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                migrate(document);
+                migrated++;
+            }
+        } catch (Exception e) {
+            log.error("Error migrating embedded document text to chunks", e);
+        }
+
+        if (migrated > 0) {
+            log.info("Migrated embedded text of {} documents to document_chunks", migrated);
+        }
+    }
+
+    private void migrate(Document document) {
+        String documentId = document.getObjectId("_id").toHexString();
+        String text = document.getString(LEGACY_TEXT_FIELD);
+
+        // Page boundaries were not kept for legacy documents, so the whole text is treated as one page
+        List<DocumentChunk> chunks = TextChunker.chunkPages(List.of(text != null ? text : ""), chunkSize);
+        documentTextService.replaceChunks(documentId, chunks);
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(document.getObjectId("_id"))),
+                new Update()
+                        .unset(LEGACY_TEXT_FIELD)
+                        .set("textLength", text != null ? text.length() : 0)
+                        .set("chunkCount", chunks.size()),
+                DOCUMENTS_COLLECTION);
+    }
+
+}
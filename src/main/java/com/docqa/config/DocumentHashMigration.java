@@ -0,0 +1,78 @@
+package com.docqa.config;
+
+import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentEntity;
+import com.docqa.service.document.DocumentTextService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+public class DocumentHashMigration {
+
+    // Same name @Indexed(unique = true) used, so deployments that already have the index keep it as is
+    private static final String FILE_HASH_INDEX = "fileHash";
+
+    private final MongoTemplate mongoTemplate;
+    private final DocumentTextService documentTextService;
+
+    public DocumentHashMigration(MongoTemplate mongoTemplate, DocumentTextService documentTextService) {
+        this.mongoTemplate = mongoTemplate;
+        this.documentTextService = documentTextService;
+    }
+
+    // Runs before the web server starts, so no upload can race the unique index
+    @PostConstruct
+    public void enforceUniqueFileHash() {
+        try {
+            mergeDuplicates();
+            mongoTemplate.indexOps(DocumentEntity.class)
+                    .createIndex(new Index().on("fileHash", Sort.Direction.ASC).unique().named(FILE_HASH_INDEX));
+        } catch (Exception e) {
+            log.error("Error enforcing unique file hash on documents, concurrent uploads on other nodes may duplicate documents", e);
+        }
+    }
+
+    private void mergeDuplicates() {
+
+        // Step 1: File hashes stored more than once, ids oldest first
+        Aggregation duplicates = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("fileHash").ne(null)),
+                Aggregation.sort(Sort.Direction.ASC, "_id"),
+                Aggregation.group("fileHash").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        List<Document> groups = mongoTemplate.aggregate(duplicates, DocumentEntity.class, Document.class).getMappedResults();
+
+        int removed = 0;
+        for (Document group : groups) {
+            List<ObjectId> ids = group.getList("ids", ObjectId.class);
+            String kept = ids.getFirst().toHexString();
+            List<ObjectId> duplicateIds = ids.subList(1, ids.size());
+            List<String> duplicateHexIds = duplicateIds.stream().map(ObjectId::toHexString).toList();
+
+            // Step 2: Sessions follow the oldest copy, then the other copies and their text go
+            mongoTemplate.updateMulti(Query.query(Criteria.where("documentId").in(duplicateHexIds)),
+                    new Update().set("documentId", kept), ChatSession.class);
+            duplicateHexIds.forEach(documentTextService::deleteChunks);
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(duplicateIds)), DocumentEntity.class);
+            removed += duplicateIds.size();
+        }
+
+        if (removed > 0) {
+            log.info("Merged {} duplicate documents across {} file hashes", removed, groups.size());
+        }
+    }
+
+}
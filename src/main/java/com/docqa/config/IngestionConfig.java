@@ -0,0 +1,87 @@
+package com.docqa.config;
+
+import com.docqa.util.BufferPool;
+import com.docqa.util.MemoryBudget;
+import com.docqa.util.ThreadFactories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@Slf4j
+public class IngestionConfig {
+
+    @Bean
+    public BufferPool uploadBufferPool(@Value("${app.ingestion.buffer-count}") int bufferCount,
+                                       @Value("${app.ingestion.buffer-size}") int bufferSize) {
+        log.info("Upload buffer pool configured with {} buffers of {} bytes", bufferCount, bufferSize);
+        return new BufferPool(bufferCount, bufferSize);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool pdfExtractionPool(@Value("${app.extraction.parallelism}") int parallelism) {
+        // Text extraction is CPU bound, so default to one worker per core
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        log.info("PDF extraction pool configured with {} workers", workers);
+        return new ForkJoinPool(workers);
+    }
+
+    @Bean
+    public MemoryBudget pdfParseMemoryBudget(@Value("${app.extraction.memory.total-budget}") long totalBudget) {
+        log.info("PDF parse memory budget configured with {} bytes", totalBudget);
+        return new MemoryBudget(totalBudget);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ingestionExecutor(@Value("${app.ingestion.jobs.workers}") int workers,
+                                             @Value("${app.ingestion.jobs.queue-capacity}") int queueCapacity,
+                                             @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        // Bounded queue with abort policy: a full queue rejects new jobs instead of piling them up
+        log.info("Ingestion executor configured with {} workers and queue capacity {}", workers, queueCapacity);
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ThreadFactories.named("ingestion-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService documentSummaryExecutor(@Value("${app.summary.parallelism}") int parallelism,
+                                                   @Value("${app.summary.queue-capacity}") int queueCapacity,
+                                                   @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        // A full queue blocks the submitter until a worker frees room, so a very large document slows its own
+        // summary down instead of failing it, and the request thread never makes the model calls itself
+        log.info("Document summary executor configured with {} workers and queue capacity {}", parallelism, queueCapacity);
+        return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ThreadFactories.named("document-summary-", virtualThreads),
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Document summary executor is shut down");
+                    }
+                    try {
+                        executor.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting to queue a summary task", e);
+                    }
+                });
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService documentInsightExecutor(@Value("${app.precompute.workers}") int workers,
+                                                   @Value("${app.precompute.queue-capacity}") int queueCapacity,
+                                                   @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        // Kept apart from the summary executor, whose workers these jobs wait on
+        log.info("Document insight executor configured with {} workers and queue capacity {}", workers, queueCapacity);
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), ThreadFactories.named("document-insight-", virtualThreads),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+}
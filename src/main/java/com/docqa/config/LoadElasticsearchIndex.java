@@ -3,66 +3,215 @@ package com.docqa.config;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
 import jakarta.annotation.PostConstruct;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+// The sessions index is a versioned physical index (chat-sessions-v<n>) behind a read alias and a write alias
 @Service
 @Slf4j
 @ConditionalOnBean(name = "elasticsearchClient")
-@RequiredArgsConstructor
 public class LoadElasticsearchIndex {
 
     private final ElasticsearchClient elasticsearchClient;
+    private final String readAlias;
+    private final String writeAlias;
+    private final String versionedIndex;
+    private final int replicas;
+    private final String refreshInterval;
+
+    // Indices every session update goes to, both old and new while a migration is in progress
+    private volatile List<String> writeTargets;
+
+    // Until the aliases exist, a write to the write alias would auto-create a concrete index with its name
+    private volatile boolean prepared;
+    private final ReentrantLock prepareLock = new ReentrantLock();
 
-    @Value("${elasticsearch.index.sessions}")
-    private String sessionsIndex;
+    // Index or alias target being replaced by versionedIndex, null when the aliases are up to date
+    private volatile String migrationSource;
+    private volatile boolean legacyConcreteSource;
+
+    public LoadElasticsearchIndex(ElasticsearchClient elasticsearchClient,
+                                  @Value("${elasticsearch.index.sessions}") String sessionsIndex,
+                                  @Value("${elasticsearch.sessions-index.version}") int version,
+                                  @Value("${elasticsearch.sessions-index.replicas}") int replicas,
+                                  @Value("${elasticsearch.sessions-index.refresh-interval}") String refreshInterval) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.readAlias = sessionsIndex;
+        this.writeAlias = sessionsIndex + "-write";
+        this.versionedIndex = sessionsIndex + "-v" + version;
+        this.replicas = replicas;
+        this.refreshInterval = refreshInterval;
+        this.writeTargets = List.of(writeAlias);
+    }
 
     @PostConstruct
     public void initializeIndices() {
         try {
-            createIndexIfNotExists(sessionsIndex);
+            ensurePrepared();
         } catch (Exception e) {
-            log.error("Error initializing Elasticsearch indices", e);
+            log.error("Error initializing Elasticsearch indices, retried before the next write", e);
         }
     }
 
-    public void createIndexIfNotExists(String indexName) {
+    // Prepares the sessions index if startup could not, throws while Elasticsearch still refuses
+    public void ensurePrepared() {
+        if (prepared) {
+            return;
+        }
+        // Held across Elasticsearch calls, a monitor would pin the virtual thread that waits on them
+        prepareLock.lock();
         try {
-            // Check if index exists
-            boolean exists = elasticsearchClient.indices()
-                    .exists(ExistsRequest.of(e -> e.index(indexName)))
-                    .value();
-
-            if (!exists) {
-                log.info("Creating Elasticsearch index: {}", indexName);
-
-                elasticsearchClient.indices().create(CreateIndexRequest.of(c -> c
-                        .index(indexName)
-                        .mappings(m -> m
-                                .properties("id", p -> p.keyword(k -> k))
-                                .properties("documentName", p -> p
-                                        .searchAsYouType(s -> s)
-                                )
-                                .properties("documentId", p -> p.keyword(k -> k))
-                                .properties("createdAt", p -> p.date(d -> d))
-                                .properties("lastInteractionAt", p -> p.date(d -> d))
-                                .properties("messageCount", p -> p.integer(i -> i))
-                                .properties("lastMessage", p -> p.text(t -> t))
-                        )
-                ));
-
-                log.info("Successfully created index: {}", indexName);
+            if (prepared) {
+                return;
+            }
+            prepareSessionsIndex();
+            prepared = true;
+        } catch (Exception e) {
+            throw new IllegalStateException("Sessions index " + versionedIndex + " is not prepared: " + e.getMessage(), e);
+        } finally {
+            prepareLock.unlock();
+        }
+    }
+
+    // Never hands out the write alias before it exists
+    public List<String> getWriteTargets() {
+        ensurePrepared();
+        return writeTargets;
+    }
+
+    public String getWriteAlias() {
+        return writeAlias;
+    }
+
+    public String getVersionedIndex() {
+        return versionedIndex;
+    }
+
+    public boolean isMigrating() {
+        return migrationSource != null;
+    }
+
+    private void prepareSessionsIndex() throws Exception {
+        boolean aliasExists = elasticsearchClient.indices().existsAlias(e -> e.name(readAlias)).value();
+        Set<String> aliasedIndices = aliasExists
+                ? elasticsearchClient.indices().getAlias(g -> g.name(readAlias)).result().keySet()
+                : Set.of();
+
+        // Step 1: Aliases already point at the current version
+        if (aliasedIndices.contains(versionedIndex)) {
+            log.info("Sessions index {} is current behind aliases {} and {}", versionedIndex, readAlias, writeAlias);
+            return;
+        }
+
+        // Step 2: Fresh cluster, create the current version with both aliases. The index may be left over
+        // from an earlier attempt that failed before the aliases were added
+        boolean legacyConcrete = !aliasExists && indexExists(readAlias);
+        if (!aliasExists && !legacyConcrete) {
+            if (!indexExists(versionedIndex)) {
+                createIndex(versionedIndex, false);
+            }
+            elasticsearchClient.indices().updateAliases(u -> u
+                    .actions(a -> a.add(add -> add.index(versionedIndex).alias(readAlias)))
+                    .actions(a -> a.add(add -> add.index(versionedIndex).alias(writeAlias).isWriteIndex(true))));
+            log.info("Created sessions index {} behind aliases {} and {}", versionedIndex, readAlias, writeAlias);
+            return;
+        }
+
+        // Step 3: Older version or a pre-alias concrete index, build the new version alongside it while dual-writing
+        String source = legacyConcrete ? readAlias : aliasedIndices.iterator().next();
+        if (indexExists(versionedIndex)) {
+            applySettings(versionedIndex, bulkLoadSettings());
+        } else {
+            createIndex(versionedIndex, true);
+        }
+        legacyConcreteSource = legacyConcrete;
+        migrationSource = source;
+        writeTargets = List.of(legacyConcrete ? readAlias : writeAlias, versionedIndex);
+        log.info("Migrating sessions index from {} to {}, reads stay on {} until the backfill completes", source, versionedIndex, source);
+    }
+
+    // Called once the backfill is complete: one atomic alias update moves reads and writes to the new version.
+    // Refused while the new index holds fewer sessions than Mongo, reads then stay on the old index
+    public void completeMigration(long expectedSessions) throws Exception {
+        String source = migrationSource;
+        if (source == null) {
+            return;
+        }
+
+        elasticsearchClient.indices().refresh(r -> r.index(versionedIndex));
+        long indexed = elasticsearchClient.count(c -> c.index(versionedIndex)).count();
+        if (indexed < expectedSessions) {
+            throw new IllegalStateException("Index " + versionedIndex + " holds " + indexed + " of " + expectedSessions
+                    + " sessions, aliases stay on " + source);
+        }
+
+        elasticsearchClient.indices().updateAliases(u -> {
+            if (legacyConcreteSource) {
+                // A concrete index cannot share its name with an alias, it is dropped in the same atomic update
+                u.actions(a -> a.removeIndex(remove -> remove.index(source)));
             } else {
-                log.info("Index already exists: {}", indexName);
+                u.actions(a -> a.remove(remove -> remove.index(source).alias(readAlias)));
+                u.actions(a -> a.remove(remove -> remove.index(source).alias(writeAlias)));
             }
+            return u.actions(a -> a.add(add -> add.index(versionedIndex).alias(readAlias)))
+                    .actions(a -> a.add(add -> add.index(versionedIndex).alias(writeAlias).isWriteIndex(true)));
+        });
+        writeTargets = List.of(writeAlias);
+        migrationSource = null;
+
+        // Restore search-time settings now that the bulk load is over
+        applySettings(versionedIndex, searchSettings());
+        log.info("Swapped aliases {} and {} to {}{}", readAlias, writeAlias, versionedIndex,
+                legacyConcreteSource ? "" : ", previous index " + source + " is kept for rollback and can be deleted");
+    }
+
+    private void createIndex(String indexName, boolean bulkLoad) {
+        try {
+            log.info("Creating Elasticsearch index: {}", indexName);
+            elasticsearchClient.indices().create(CreateIndexRequest.of(c -> c
+                    .index(indexName)
+                    .settings(bulkLoad ? bulkLoadSettings() : searchSettings())
+                    .mappings(m -> m
+                            .properties("id", p -> p.keyword(k -> k))
+                            .properties("documentName", p -> p
+                                    .searchAsYouType(s -> s)
+                            )
+                            .properties("documentId", p -> p.keyword(k -> k))
+                            .properties("createdAt", p -> p.date(d -> d))
+                            .properties("lastInteractionAt", p -> p.date(d -> d))
+                            .properties("messageCount", p -> p.integer(i -> i))
+                            .properties("lastMessage", p -> p.text(t -> t))
+                    )
+            ));
+            log.info("Successfully created index: {}", indexName);
         } catch (Exception e) {
             log.error("Error creating index: {}", indexName, e);
             throw new RuntimeException("Failed to create Elasticsearch index: " + indexName, e);
         }
     }
-}
 
+    private boolean indexExists(String indexName) throws Exception {
+        return elasticsearchClient.indices().exists(ExistsRequest.of(e -> e.index(indexName))).value();
+    }
+
+    private void applySettings(String indexName, IndexSettings settings) throws Exception {
+        elasticsearchClient.indices().putSettings(p -> p.index(indexName).settings(settings));
+    }
+
+    // No refreshes and no replicas while the backfill writes, the new index is not searched yet
+    private static IndexSettings bulkLoadSettings() {
+        return IndexSettings.of(s -> s.refreshInterval(t -> t.time("-1")).numberOfReplicas("0"));
+    }
+
+    private IndexSettings searchSettings() {
+        return IndexSettings.of(s -> s.refreshInterval(t -> t.time(refreshInterval)).numberOfReplicas(String.valueOf(replicas)));
+    }
+}
@@ -0,0 +1,11 @@
+package com.docqa.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+// Bound rather than injected with @Value, which cannot read a YAML list
+@ConfigurationProperties(prefix = "app.llm")
+public record OllamaBackendProperties(@DefaultValue List<String> backends) {
+}
@@ -0,0 +1,27 @@
+package com.docqa.config;
+
+import com.docqa.util.PromptBudget;
+import com.docqa.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class PromptConfig {
+
+    @Bean
+    public TokenEstimator tokenEstimator(@Value("${app.prompt.chars-per-token}") double charsPerToken) {
+        return TokenEstimator.charsPerToken(charsPerToken);
+    }
+
+    @Bean
+    public PromptBudget chatPromptBudget(@Value("${spring.ai.ollama.chat.options.num-ctx}") int contextWindow,
+                                         @Value("${app.prompt.answer-reserve}") int answerReserve,
+                                         @Value("${app.prompt.max-history-share}") double maxHistoryShare) {
+        PromptBudget budget = new PromptBudget(contextWindow, answerReserve, maxHistoryShare);
+        log.info("Chat prompts limited to {} of {} context tokens", budget.promptTokens(), contextWindow);
+        return budget;
+    }
+}
@@ -1,16 +1,27 @@
 package com.docqa.controller;
 
+import com.docqa.dto.ChatBatchEvent;
+import com.docqa.dto.ChatBatchRequest;
 import com.docqa.dto.ChatMessageRequest;
 import com.docqa.dto.ChatSessionResponse;
+import com.docqa.dto.ChatStreamEvent;
 import com.docqa.mapper.ChatBotMapper;
 import com.docqa.model.ChatSession;
 import com.docqa.service.chat.ChatService;
+import com.docqa.service.chat.SessionWarmUpService;
 import com.docqa.validator.ChatBotValidator;
+import io.micrometer.common.util.StringUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -21,6 +32,13 @@ import java.util.List;
 public class ChatController {
 
     private final ChatService chatService;
+    private final SessionWarmUpService sessionWarmUpService;
+
+    @Value("${app.chat.stream-timeout}")
+    private Duration streamTimeout;
+
+    @Value("${app.chat.batch.max-questions}")
+    private int maxBatchQuestions;
 
     @PostMapping(value = "/message", consumes = "application/json", produces = "application/json")
     public ResponseEntity<ChatSessionResponse> sendMessage(@RequestBody ChatMessageRequest request) {
@@ -40,6 +58,68 @@ public class ChatController {
         return ResponseEntity.ok(ChatBotMapper.toResponse(session, response));
     }
 
+    @PostMapping(value = "/message/stream", consumes = "application/json", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@RequestBody ChatMessageRequest request) {
+
+        log.info("Received SSE chat message for session: {}", request.sessionId());
+
+        // Validate request
+        ChatBotValidator.validateChatMessageRequest(request);
+
+        // Forward tokens as server-sent events, stop generating if the client goes away
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Disposable stream = chatService.streamChat(request.sessionId(), request.question()).subscribe(
+                token -> send(emitter, ChatStreamEvent.token(request.sessionId(), token)),
+                error -> {
+                    log.error("Streaming chat failed for session {}", request.sessionId(), error);
+                    send(emitter, ChatStreamEvent.error(request.sessionId(), error.getMessage()));
+                    emitter.complete();
+                },
+                () -> {
+                    send(emitter, ChatStreamEvent.complete(request.sessionId()));
+                    emitter.complete();
+                });
+        emitter.onTimeout(stream::dispose);
+        emitter.onError(error -> stream.dispose());
+
+        return emitter;
+    }
+
+    @PostMapping(value = "/message/batch", consumes = "application/json", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter sendMessageBatch(@RequestBody ChatBatchRequest request) {
+
+        log.info("Received batch of {} questions for session: {}, document: {}",
+                request.questions() == null ? 0 : request.questions().size(), request.sessionId(), request.documentId());
+
+        // Validate request
+        ChatBotValidator.validateChatBatchRequest(request, maxBatchQuestions);
+
+        // A document ID alone starts a new session for the batch
+        String sessionId = StringUtils.isBlank(request.sessionId())
+                ? chatService.startChatSession(request.documentId()).getId()
+                : request.sessionId();
+
+        // One event per question as it is answered, then complete once all turns are persisted
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        Disposable batch = chatService.chatBatch(sessionId, request.questions()).subscribe(
+                result -> send(emitter, result.error() == null
+                        ? ChatBatchEvent.answer(sessionId, result.index(), result.question(), result.answer())
+                        : ChatBatchEvent.error(sessionId, result.index(), result.question(), result.error())),
+                error -> {
+                    log.error("Batch chat failed for session {}", sessionId, error);
+                    send(emitter, ChatBatchEvent.error(sessionId, null, null, error.getMessage()));
+                    emitter.complete();
+                },
+                () -> {
+                    send(emitter, ChatBatchEvent.complete(sessionId));
+                    emitter.complete();
+                });
+        emitter.onTimeout(batch::dispose);
+        emitter.onError(error -> batch.dispose());
+
+        return emitter;
+    }
+
     @GetMapping(value = "/{sessionId}", produces = "application/json")
     public ResponseEntity<ChatSessionResponse> getChatSession(@PathVariable String sessionId) {
         log.info("Retrieving chat session: {}", sessionId);
@@ -50,6 +130,9 @@ public class ChatController {
         // Retrieve chat session
         ChatSession session = chatService.getChatSession(sessionId);
 
+        // Get the model and the document prefix ready for the first question
+        sessionWarmUpService.warmUp(session);
+
         // Map to response DTO
         return ResponseEntity.ok(ChatBotMapper.toResponse(session));
     }
@@ -60,6 +143,22 @@ public class ChatController {
         List<ChatSession> sessions = chatService.getAllSessions();
         return ResponseEntity.ok(sessions.stream().map(ChatBotMapper::toResponse).toList());
     }
-}
 
+    private static void send(SseEmitter emitter, ChatBatchEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(event.type().name().toLowerCase()).data(event));
+        } catch (IOException e) {
+            log.warn("Client disconnected from batch stream for session {}", event.sessionId());
+            emitter.completeWithError(e);
+        }
+    }
 
+    private static void send(SseEmitter emitter, ChatStreamEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(event.type().name().toLowerCase()).data(event));
+        } catch (IOException e) {
+            log.warn("Client disconnected from chat stream for session {}", event.sessionId());
+            emitter.completeWithError(e);
+        }
+    }
+}
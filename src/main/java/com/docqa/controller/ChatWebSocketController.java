@@ -0,0 +1,46 @@
+package com.docqa.controller;
+
+import com.docqa.dto.ChatMessageRequest;
+import com.docqa.dto.ChatStreamEvent;
+import com.docqa.service.chat.ChatService;
+import com.docqa.validator.ChatBotValidator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+@Controller
+@Slf4j
+@RequiredArgsConstructor
+public class ChatWebSocketController {
+
+    private static final String CHAT_TOPIC = "/topic/chat/";
+
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @MessageMapping("/chat/stream")
+    public void streamMessage(ChatMessageRequest request) {
+        log.info("Received WebSocket chat message for session: {}", request.sessionId());
+
+        // Validate request
+        ChatBotValidator.validateChatMessageRequest(request);
+
+        // Push each token to the session topic as the model produces it. The session read and the wait for the
+        // model run on boundedElastic, never on the inbound channel thread that delivered the message
+        String destination = CHAT_TOPIC + request.sessionId();
+        Flux.defer(() -> chatService.streamChat(request.sessionId(), request.question()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        token -> messagingTemplate.convertAndSend(destination, ChatStreamEvent.token(request.sessionId(), token)),
+                        error -> {
+                            log.error("Streaming chat failed for session {}", request.sessionId(), error);
+                            messagingTemplate.convertAndSend(destination, ChatStreamEvent.error(request.sessionId(), error.getMessage()));
+                        },
+                        () -> messagingTemplate.convertAndSend(destination, ChatStreamEvent.complete(request.sessionId())));
+    }
+
+}
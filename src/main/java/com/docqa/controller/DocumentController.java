@@ -1,9 +1,14 @@
 package com.docqa.controller;
 
+import com.docqa.dto.DocumentSummaryResponse;
 import com.docqa.dto.DocumentUploadResponse;
+import com.docqa.dto.IngestionJobResponse;
 import com.docqa.model.ChatSession;
+import com.docqa.model.IngestionJob;
 import com.docqa.service.chat.ChatService;
 import com.docqa.service.document.DocumentService;
+import com.docqa.service.document.DocumentSummaryService;
+import com.docqa.service.document.IngestionJobService;
 import com.docqa.validator.ChatBotValidator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,6 +17,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import static com.docqa.mapper.DocumentMapper.toJobResponse;
+import static com.docqa.mapper.DocumentMapper.toUploadResponse;
+
 @RestController
 @RequestMapping("/api/v1/documents")
 @Slf4j
@@ -20,13 +28,19 @@ public class DocumentController {
 
     private final DocumentService documentService;
     private final ChatService chatService;
+    private final IngestionJobService ingestionJobService;
+    private final DocumentSummaryService documentSummaryService;
     private final long maxFileSize;
 
     public DocumentController(DocumentService documentService,
                             ChatService chatService,
+                            IngestionJobService ingestionJobService,
+                            DocumentSummaryService documentSummaryService,
                             @Value("${app.max-file-size}") long maxFileSize) {
         this.documentService = documentService;
         this.chatService = chatService;
+        this.ingestionJobService = ingestionJobService;
+        this.documentSummaryService = documentSummaryService;
         this.maxFileSize = maxFileSize;
     }
 
@@ -49,9 +63,36 @@ public class DocumentController {
         String initialResponse = chatService.chat(session.getId(), query);
 
         // Build and return the response
-        return ResponseEntity.status(HttpStatus.CREATED).body(new DocumentUploadResponse(query, initialResponse, session.getId(), documentId));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(toUploadResponse(query, initialResponse, session.getId(), documentService.getDocument(documentId)));
 
     }
 
-}
+    @PostMapping("/upload/async")
+    public ResponseEntity<IngestionJobResponse> uploadDocumentAsync(@RequestParam("file") MultipartFile file,
+                                                                    @RequestParam(value = "query", required = false) String query) {
+
+        log.info("Received async document upload request: {}", file.getOriginalFilename());
+
+        // Validate the uploaded file
+        ChatBotValidator.validateFile(file, maxFileSize);
+
+        // Hand the upload to the ingestion workers, progress is pushed to /topic/ingestion/{jobId}
+        IngestionJob job = ingestionJobService.submit(file, query);
 
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(toJobResponse(job));
+    }
+
+    @GetMapping(value = "/jobs/{jobId}", produces = "application/json")
+    public ResponseEntity<IngestionJobResponse> getIngestionJob(@PathVariable String jobId) {
+        log.info("Retrieving ingestion job: {}", jobId);
+        return ResponseEntity.ok(toJobResponse(ingestionJobService.getJob(jobId)));
+    }
+
+    @GetMapping(value = "/{documentId}/summary", produces = "application/json")
+    public ResponseEntity<DocumentSummaryResponse> getDocumentSummary(@PathVariable String documentId) {
+        log.info("Received summary request for document: {}", documentId);
+        return ResponseEntity.ok(new DocumentSummaryResponse(documentId, documentSummaryService.summarize(documentId)));
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.docqa.dto;
+
+public record ChatBatchEvent(
+        String sessionId,
+        Type type,
+        Integer index,
+        String question,
+        String content
+) {
+
+    public enum Type {
+        ANSWER,     // content is the answer to the question at index
+        COMPLETE,   // every answered turn has been persisted to the session
+        ERROR       // content is the error message, index is null when the whole batch failed
+    }
+
+    public static ChatBatchEvent answer(String sessionId, int index, String question, String answer) {
+        return new ChatBatchEvent(sessionId, Type.ANSWER, index, question, answer);
+    }
+
+    public static ChatBatchEvent complete(String sessionId) {
+        return new ChatBatchEvent(sessionId, Type.COMPLETE, null, null, null);
+    }
+
+    public static ChatBatchEvent error(String sessionId, Integer index, String question, String message) {
+        return new ChatBatchEvent(sessionId, Type.ERROR, index, question, message);
+    }
+}
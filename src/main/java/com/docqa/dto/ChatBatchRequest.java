@@ -0,0 +1,7 @@
+package com.docqa.dto;
+
+import java.util.List;
+
+// Either an existing session, or a document to start a new session on
+public record ChatBatchRequest(String sessionId, String documentId, List<String> questions) {
+}
@@ -0,0 +1,26 @@
+package com.docqa.dto;
+
+public record ChatStreamEvent(
+        String sessionId,
+        Type type,
+        String content
+) {
+
+    public enum Type {
+        TOKEN,      // content is the next fragment of the answer
+        COMPLETE,   // the answer has been persisted to the session
+        ERROR       // content is the error message
+    }
+
+    public static ChatStreamEvent token(String sessionId, String token) {
+        return new ChatStreamEvent(sessionId, Type.TOKEN, token);
+    }
+
+    public static ChatStreamEvent complete(String sessionId) {
+        return new ChatStreamEvent(sessionId, Type.COMPLETE, null);
+    }
+
+    public static ChatStreamEvent error(String sessionId, String message) {
+        return new ChatStreamEvent(sessionId, Type.ERROR, message);
+    }
+}
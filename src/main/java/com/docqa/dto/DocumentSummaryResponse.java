@@ -0,0 +1,7 @@
+package com.docqa.dto;
+
+public record DocumentSummaryResponse(
+        String documentId,
+        String summary
+) {
+}
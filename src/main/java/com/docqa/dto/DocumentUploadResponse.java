@@ -1,10 +1,14 @@
 package com.docqa.dto;
 
+import java.util.List;
+
 public record DocumentUploadResponse(
         String query,
         String response,
         String sessionId,
-        String documentId
+        String documentId,
+        String summary,
+        List<String> suggestedQuestions
 ) {
 }
 
@@ -0,0 +1,18 @@
+package com.docqa.dto;
+
+import com.docqa.model.IngestionStage;
+
+import java.time.LocalDateTime;
+
+public record IngestionJobResponse(
+        String jobId,
+        String fileName,
+        IngestionStage stage,
+        String query,
+        String response,
+        String sessionId,
+        String documentId,
+        String error,
+        LocalDateTime updatedAt
+) {
+}
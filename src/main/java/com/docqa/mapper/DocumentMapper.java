@@ -1,12 +1,16 @@
 package com.docqa.mapper;
 
 import com.docqa.dto.ChatSessionResponse;
+import com.docqa.dto.DocumentUploadResponse;
+import com.docqa.dto.IngestionJobResponse;
+import com.docqa.model.DocumentChunk;
 import com.docqa.model.DocumentEntity;
-import com.docqa.util.PDFExtractor;
+import com.docqa.model.IngestionJob;
+import com.docqa.model.SuggestedQuestion;
+import com.docqa.util.SpooledUpload;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,26 +20,46 @@ import java.util.Map;
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class DocumentMapper {
 
-    public static DocumentEntity createNewDocument(MultipartFile file, String fileHash) {
-        log.info("Duplicate PDF detected! File hash {} already exists. Reusing cached content from file: {}",
-                fileHash, file.getOriginalFilename());
-
-        String extractedText = PDFExtractor.extractTextFromPDF(file);
-        log.info("Successfully extracted text from PDF, length: {} characters", extractedText.length());
+    public static DocumentEntity createNewDocument(SpooledUpload upload, List<String> pages, List<DocumentChunk> chunks) {
+        long textLength = chunks.isEmpty() ? 0 : chunks.getLast().getEndOffset();
+        log.info("Successfully extracted text from PDF, length: {} characters in {} chunks", textLength, chunks.size());
 
         LocalDateTime now = LocalDateTime.now();
 
         return DocumentEntity.builder()
-                .fileName(file.getOriginalFilename())
-                .mimeType(file.getContentType())
-                .fileSize(file.getSize())
-                .fileHash(fileHash)
-                .extractedText(extractedText)
+                .fileName(upload.fileName())
+                .mimeType(upload.contentType())
+                .fileSize(upload.size())
+                .fileHash(upload.fileHash())
+                .pageCount(pages.size())
+                .textLength(textLength)
+                .chunkCount(chunks.size())
                 .uploadedAt(now)
                 .updatedAt(now)
                 .build();
     }
 
+    // Summary and suggested questions are only present once the background precompute has finished
+    public static DocumentUploadResponse toUploadResponse(String query, String response, String sessionId, DocumentEntity document) {
+        List<String> suggestedQuestions = document.getSuggestedQuestions() == null ? List.of()
+                : document.getSuggestedQuestions().stream().map(SuggestedQuestion::getQuestion).toList();
+        return new DocumentUploadResponse(query, response, sessionId, document.getId(), document.getSummary(), suggestedQuestions);
+    }
+
+    public static IngestionJobResponse toJobResponse(IngestionJob job) {
+        return new IngestionJobResponse(
+                job.id(),
+                job.fileName(),
+                job.stage(),
+                job.query(),
+                job.response(),
+                job.sessionId(),
+                job.documentId(),
+                job.error(),
+                job.updatedAt()
+        );
+    }
+
     public static Map<String, Object> buildSearchResponse(
             List<ChatSessionResponse> results,
             Integer token
@@ -0,0 +1,28 @@
+package com.docqa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "answer_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CachedAnswer {
+
+    @Id
+    private String id;                   // Digest of file hash, normalized question and history window
+
+    private String documentHash;
+    private String question;             // Normalized question, kept for inspection
+    private String answer;
+
+    private LocalDateTime createdAt;     // Drives the TTL index
+
+}
@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -15,7 +16,7 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class ChatSession {
 
     @Id
@@ -23,18 +24,26 @@ public class ChatSession {
 
     private String documentId;           // Reference to the uploaded document
     private String documentName;         // Document file name for display
-    private String extractedText;        // Full extracted text from PDF (cached)
+    private String documentHash;         // File hash of the document, identifies its content across uploads
 
     private List<ChatMessage> messages;  // Conversation history
+    private Integer messageCount;        // Maintained alongside messages so it can be read without them
+
+    private String conversationSummary;       // Running summary of the turns that have dropped out of the prompt window
+    private Integer summarizedMessageCount;   // Number of leading messages folded into the summary
+
+    @Version
+    private Long version;                // Incremented on every appended turn, a turn only lands on the version it was answered from
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
-    public ChatSession(String documentId, String documentName, String extractedText) {
+    public ChatSession(String documentId, String documentName, String documentHash) {
         this.documentId = documentId;
         this.documentName = documentName;
-        this.extractedText = extractedText;
+        this.documentHash = documentHash;
         this.messages = new ArrayList<>();
+        this.messageCount = 0;
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
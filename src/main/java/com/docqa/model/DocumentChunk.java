@@ -0,0 +1,35 @@
+package com.docqa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+
+@Document(collection = "document_chunks")
+@CompoundIndex(name = "document_sequence", def = "{'documentId': 1, 'sequence': 1}", unique = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DocumentChunk {
+
+    @Id
+    private String id;
+
+    private String documentId;     // Reference to the owning document
+    private int sequence;          // Position of the chunk within the document
+    private int pageNumber;        // 1-based page the chunk was extracted from
+    private long startOffset;      // Offset of the first character within the full document text
+    private long endOffset;        // Offset just past the last character
+
+    private String text;
+
+    private int tokenCount;                        // Indexed tokens in the chunk, the BM25 length
+    private Map<String, Integer> termFrequencies;  // Persisted BM25 statistics, see Bm25Index
+
+}
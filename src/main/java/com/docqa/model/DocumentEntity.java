@@ -9,6 +9,7 @@ import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Document(collection = "documents")
 @Data
@@ -25,10 +26,16 @@ public class DocumentEntity {
 
     private String mimeType;
     private long fileSize;
-    private String fileHash;
 
-    @TextIndexed(weight = 1)
-    private String extractedText;
+    private String fileHash;            // Unique index created by DocumentHashMigration once duplicates are merged
+
+    private int pageCount;
+    private long textLength;
+    private int chunkCount;             // Text lives in document_chunks, see DocumentChunk
+
+    private String summary;             // Map-reduce summary, shared by every upload of the same file hash
+    private LocalDateTime summarizedAt;
+    private List<SuggestedQuestion> suggestedQuestions;  // Precomputed at ingestion when app.precompute is enabled
 
     private LocalDateTime uploadedAt;
     private LocalDateTime updatedAt;
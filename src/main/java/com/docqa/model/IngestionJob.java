@@ -0,0 +1,21 @@
+package com.docqa.model;
+
+import lombok.With;
+
+import java.time.LocalDateTime;
+
+@With
+public record IngestionJob(
+        String id,
+        String fileName,
+        String fileHash,
+        String query,
+        IngestionStage stage,
+        String documentId,
+        String sessionId,
+        String response,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.docqa.model;
+
+public enum IngestionStage {
+
+    HASHED,
+    QUEUED,
+    EXTRACTED,
+    SAVED,
+    SESSION_READY,
+    ANSWERED,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
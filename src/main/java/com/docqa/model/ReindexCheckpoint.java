@@ -0,0 +1,29 @@
+package com.docqa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Document(collection = "reindex_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReindexCheckpoint {
+
+    @Id
+    private String id;                   // Name of the index being rebuilt
+
+    private String lastSessionId;        // Highest session id already indexed, the next page starts after it
+    private long processed;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;   // Set when a run reached the last session, the next run starts after it
+
+}
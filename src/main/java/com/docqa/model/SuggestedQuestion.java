@@ -0,0 +1,14 @@
+package com.docqa.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestedQuestion {
+
+    private String question;
+    private String answer;
+}
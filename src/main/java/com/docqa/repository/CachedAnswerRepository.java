@@ -0,0 +1,9 @@
+package com.docqa.repository;
+
+import com.docqa.model.CachedAnswer;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CachedAnswerRepository extends MongoRepository<CachedAnswer, String> {
+}
@@ -0,0 +1,18 @@
+package com.docqa.repository;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ChatSessionRepositoryCustom {
+
+    Optional<ChatSession> findWithRecentMessages(String sessionId, int messageLimit);
+
+    ChatSession appendMessages(String sessionId, Long expectedVersion, List<ChatMessage> messages);
+
+    List<ChatMessage> findMessageRange(String sessionId, int skip, int limit);
+
+    boolean updateSummary(String sessionId, int expectedSummarizedCount, String summary, int summarizedCount);
+}
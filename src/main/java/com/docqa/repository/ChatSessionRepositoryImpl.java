@@ -0,0 +1,73 @@
+package com.docqa.repository;
+
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class ChatSessionRepositoryImpl implements ChatSessionRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public Optional<ChatSession> findWithRecentMessages(String sessionId, int messageLimit) {
+        Query query = Query.query(where("_id").is(sessionId));
+        query.fields().slice("messages", -messageLimit);
+        return Optional.ofNullable(mongoTemplate.findOne(query, ChatSession.class));
+    }
+
+    @Override
+    public ChatSession appendMessages(String sessionId, Long expectedVersion, List<ChatMessage> messages) {
+        // One atomic update: the turn lands as a unit, and only on top of the history it was answered from
+        Update update = new Update()
+                .push("messages").each(messages.toArray())
+                .inc("messageCount", messages.size())
+                .inc("version", 1)
+                .set("updatedAt", LocalDateTime.now());
+
+        // Only the last message comes back, which is all the search index needs
+        Query query = Query.query(where("_id").is(sessionId).and("version").is(expectedVersion));
+        query.fields().slice("messages", -1);
+
+        ChatSession updated = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ChatSession.class);
+        if (updated == null) {
+            if (!mongoTemplate.exists(Query.query(where("_id").is(sessionId)), ChatSession.class)) {
+                throw new ResourceNotFoundException("Chat session not found: " + sessionId);
+            }
+            throw new OptimisticLockingFailureException("Chat session " + sessionId + " changed since version " + expectedVersion);
+        }
+        return updated;
+    }
+
+    @Override
+    public List<ChatMessage> findMessageRange(String sessionId, int skip, int limit) {
+        Query query = Query.query(where("_id").is(sessionId));
+        query.fields().slice("messages", skip, limit);
+        ChatSession session = mongoTemplate.findOne(query, ChatSession.class);
+        return session == null || session.getMessages() == null ? List.of() : session.getMessages();
+    }
+
+    @Override
+    public boolean updateSummary(String sessionId, int expectedSummarizedCount, String summary, int summarizedCount) {
+        // Only applies on top of the summary it was built from, a concurrent refresh that got there first wins
+        Query query = Query.query(where("_id").is(sessionId).and("summarizedMessageCount")
+                .in(expectedSummarizedCount == 0 ? Arrays.asList(0, null) : List.of(expectedSummarizedCount)));
+        Update update = new Update()
+                .set("conversationSummary", summary)
+                .set("summarizedMessageCount", summarizedCount);
+        return mongoTemplate.updateFirst(query, update, ChatSession.class).getModifiedCount() > 0;
+    }
+}
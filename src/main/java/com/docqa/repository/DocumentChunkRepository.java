@@ -0,0 +1,22 @@
+package com.docqa.repository;
+
+import com.docqa.model.DocumentChunk;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Repository
+public interface DocumentChunkRepository extends MongoRepository<DocumentChunk, String> {
+
+    Stream<DocumentChunk> streamByDocumentIdOrderBySequenceAsc(String documentId);
+
+    Optional<DocumentChunk> findByDocumentIdAndSequence(String documentId, int sequence);
+
+    List<DocumentChunk> findByDocumentIdAndSequenceInOrderBySequenceAsc(String documentId, Collection<Integer> sequences);
+
+    void deleteByDocumentId(String documentId);
+}
@@ -8,6 +8,8 @@ import java.util.Optional;
 
 @Repository
 public interface DocumentRepository extends MongoRepository<DocumentEntity, String> {
-    Optional<DocumentEntity> findByFileHash(String fileHash);
+
+    // Oldest first, the same document the hash migration keeps when it merges duplicates
+    Optional<DocumentEntity> findFirstByFileHashOrderByIdAsc(String fileHash);
 }
 
@@ -0,0 +1,197 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.CachedAnswer;
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.repository.CachedAnswerRepository;
+import com.docqa.util.BoundedCache;
+import com.docqa.util.FileHashUtil;
+import com.docqa.util.PromptBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class AnswerCacheService {
+
+    private static final String TTL_INDEX = "answer_ttl";
+
+    private final CachedAnswerRepository cachedAnswerRepository;
+    private final MongoTemplate mongoTemplate;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final boolean enabled;
+    private final boolean mongoEnabled;
+    private final Duration ttl;
+
+    private final BoundedCache<String, String> answers;
+    private final Counter memoryHits;
+    private final Counter mongoHits;
+    private final Counter semanticHits;
+    private final Counter misses;
+
+    public AnswerCacheService(CachedAnswerRepository cachedAnswerRepository,
+                              MongoTemplate mongoTemplate,
+                              SemanticAnswerCache semanticAnswerCache,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.cache.answers.enabled}") boolean enabled,
+                              @Value("${app.cache.answers.mongo-enabled}") boolean mongoEnabled,
+                              @Value("${app.cache.answers.max-chars}") long maxChars,
+                              @Value("${app.cache.answers.ttl}") Duration ttl) {
+        this.cachedAnswerRepository = cachedAnswerRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.semanticAnswerCache = semanticAnswerCache;
+        this.enabled = enabled;
+        this.mongoEnabled = mongoEnabled;
+        this.ttl = ttl;
+        this.answers = new BoundedCache<>(maxChars, String::length, ttl);
+
+        this.memoryHits = Counter.builder("answer.cache.requests").tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        this.mongoHits = Counter.builder("answer.cache.requests").tag("result", "hit").tag("tier", "mongo").register(meterRegistry);
+        this.semanticHits = Counter.builder("answer.cache.requests").tag("result", "hit").tag("tier", "semantic").register(meterRegistry);
+        this.misses = Counter.builder("answer.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("answer.cache.size", answers, BoundedCache::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void createTtlIndex() {
+        if (!enabled || !mongoEnabled) {
+            return;
+        }
+        try {
+            // Mongo rejects a changed TTL on the existing index, so an index with another TTL is dropped first
+            IndexOperations indexOps = mongoTemplate.indexOps(CachedAnswer.class);
+            boolean stale = indexOps.getIndexInfo().stream()
+                    .anyMatch(index -> TTL_INDEX.equals(index.getName())
+                            && index.getExpireAfter().map(expire -> expire.getSeconds() != ttl.getSeconds()).orElse(true));
+            if (stale) {
+                log.info("Answer cache TTL changed to {}, recreating index {}", ttl, TTL_INDEX);
+                indexOps.dropIndex(TTL_INDEX);
+            }
+
+            // Mongo expires shared entries on its own, on the same TTL as the in-memory tier
+            indexOps.createIndex(new Index().on("createdAt", Sort.Direction.ASC).expire(ttl).named(TTL_INDEX));
+        } catch (Exception e) {
+            log.error("Error creating answer cache TTL index, expired shared answers are ignored but stay in Mongo", e);
+        }
+    }
+
+    public Lookup lookup(ChatSession session, String question) {
+        if (!enabled) {
+            return new Lookup(null, null, null, null, null);
+        }
+
+        List<ChatMessage> history = PromptBuilder.historyWindow(session);
+        String documentKey = documentKey(session);
+        String key = cacheKey(documentKey, question, session.getConversationSummary(), history);
+
+        String answer = answers.get(key);
+        if (answer != null) {
+            memoryHits.increment();
+            log.info("Answer cache hit (memory) for session {}", session.getId());
+            return new Lookup(key, documentKey, question, null, answer);
+        }
+
+        if (mongoEnabled) {
+            Optional<CachedAnswer> shared = cachedAnswerRepository.findById(key)
+                    .filter(cached -> cached.getCreatedAt().isAfter(LocalDateTime.now().minus(ttl)));
+            if (shared.isPresent()) {
+                mongoHits.increment();
+                answers.put(key, shared.get().getAnswer());
+                log.info("Answer cache hit (mongo) for session {}", session.getId());
+                return new Lookup(key, documentKey, question, null, shared.get().getAnswer());
+            }
+        }
+
+        // Paraphrases are only matched for opening questions, where no history can change the answer
+        float[] embedding = semanticAnswerCache.isEnabled() && history.isEmpty() ? semanticAnswerCache.embed(question) : null;
+        if (embedding != null) {
+            Optional<String> similar = semanticAnswerCache.findSimilar(documentKey, embedding);
+            if (similar.isPresent()) {
+                semanticHits.increment();
+                return new Lookup(key, documentKey, question, embedding, similar.get());
+            }
+        }
+
+        // Exactly one outcome is counted per lookup
+        misses.increment();
+        return new Lookup(key, documentKey, question, embedding, null);
+    }
+
+    // Cache entry for an answer computed ahead of any request, not counted as a lookup
+    public Lookup entryFor(ChatSession session, String question) {
+        if (!enabled) {
+            return new Lookup(null, null, null, null, null);
+        }
+
+        List<ChatMessage> history = PromptBuilder.historyWindow(session);
+        String documentKey = documentKey(session);
+        float[] embedding = semanticAnswerCache.isEnabled() && history.isEmpty() ? semanticAnswerCache.embed(question) : null;
+        return new Lookup(cacheKey(documentKey, question, session.getConversationSummary(), history), documentKey, question, embedding, null);
+    }
+
+    public void store(Lookup lookup, String answer) {
+        if (!enabled) {
+            return;
+        }
+
+        answers.put(lookup.key(), answer);
+        if (lookup.embedding() != null) {
+            semanticAnswerCache.store(lookup.documentKey(), lookup.embedding(), answer);
+        }
+
+        if (mongoEnabled) {
+            try {
+                cachedAnswerRepository.save(new CachedAnswer(lookup.key(), lookup.documentKey(), normalize(lookup.question()), answer, LocalDateTime.now()));
+            } catch (Exception e) {
+                log.warn("Failed to store answer in shared cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Same document content, same question and same visible history produce the same prompt
+    private static String cacheKey(String documentKey, String question, String conversationSummary, List<ChatMessage> history) {
+        StringBuilder key = new StringBuilder(documentKey).append('\n').append(normalize(question)).append('\n');
+        if (conversationSummary != null) {
+            key.append("summary:").append(conversationSummary).append('\n');
+        }
+        for (ChatMessage message : history) {
+            key.append(message.getRole().getRoleName()).append(':').append(message.getContent()).append('\n');
+        }
+        return FileHashUtil.sha256Hex(key.toString());
+    }
+
+    // Sessions created before documentHash was recorded fall back to the document id
+    private static String documentKey(ChatSession session) {
+        return session.getDocumentHash() != null ? session.getDocumentHash() : session.getDocumentId();
+    }
+
+    public static String normalize(String question) {
+        return question.trim()
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .replaceAll("[\\s?.!]+$", "");
+    }
+
+    public record Lookup(String key, String documentKey, String question, float[] embedding, String answer) {
+
+        public boolean isHit() {
+            return answer != null;
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatSession;
+import com.docqa.service.document.DocumentTextService;
+import com.docqa.service.retrieval.RetrievalService;
+import com.docqa.util.PromptBudget;
+import com.docqa.util.PromptBuilder;
+import com.docqa.util.TokenEstimator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChatPromptService {
+
+    private final DocumentTextService documentTextService;
+    private final RetrievalService retrievalService;
+    private final PromptBudget promptBudget;
+    private final TokenEstimator tokenEstimator;
+
+    public String buildPrompt(ChatSession session, String userMessage) {
+
+        // Large documents only contribute their most relevant chunks, small ones go in whole as far as the budget allows
+        String prompt = retrievalService.retrieve(session.getDocumentId(), userMessage)
+                .map(excerpts -> PromptBuilder.buildRetrievalPrompt(session, excerpts, userMessage, promptBudget, tokenEstimator))
+                .orElseGet(() -> PromptBuilder.buildContextualPrompt(session, documentTextService.getText(session.getDocumentId()),
+                        userMessage, promptBudget, tokenEstimator));
+        log.debug("Built prompt of ~{} tokens for session {}", tokenEstimator.estimate(prompt), session.getId());
+        return prompt;
+    }
+
+    // The part of every prompt for this session that does not change between turns
+    public String buildPrefix(ChatSession session) {
+        return retrievalService.usesRetrieval(session.getDocumentId())
+                ? PromptBuilder.retrievalPrefix(session)
+                : PromptBuilder.documentPrefix(documentTextService.getText(session.getDocumentId()), promptBudget, tokenEstimator);
+    }
+}
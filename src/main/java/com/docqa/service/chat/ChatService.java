@@ -1,38 +1,75 @@
 package com.docqa.service.chat;
 
 import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.exception.ServiceUnavailableException;
 import com.docqa.model.ChatMessage;
 import com.docqa.model.ChatSession;
 import com.docqa.model.DocumentEntity;
 import com.docqa.model.Role;
 import com.docqa.repository.ChatSessionRepository;
 import com.docqa.repository.DocumentRepository;
+import com.docqa.service.document.DocumentInsightService;
 import com.docqa.service.elasticsearch.ElasticsearchSyncService;
-import com.docqa.service.llm.OllamaService;
-import com.docqa.util.PromptBuilder;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.ModelRouter;
 import io.micrometer.common.util.StringUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 public class ChatService {
 
+    private static final int HISTORY_WINDOW = 10;
+    private static final int MAX_TURN_ATTEMPTS = 3;
+
     private final ChatSessionRepository chatSessionRepository;
     private final DocumentRepository documentRepository;
-    private final OllamaService ollamaService;
+    private final ModelRouter modelRouter;
     private final ElasticsearchSyncService elasticsearchSyncService;
+    private final ChatPromptService chatPromptService;
+    private final AnswerCacheService answerCacheService;
+    private final ConversationMemoryService conversationMemoryService;
+    private final DocumentInsightService documentInsightService;
+    private final int batchParallelism;
+    private final Duration batchQuestionWait;
+
+    // Questions from all batches answered at once, kept below the gateway queue so batches cannot fill it
+    private final Semaphore batchQuestionPermits;
 
     public ChatService(ChatSessionRepository chatSessionRepository,
                       DocumentRepository documentRepository,
-                      OllamaService ollamaService,
-                      ElasticsearchSyncService elasticsearchSyncService) {
+                      ModelRouter modelRouter,
+                      ElasticsearchSyncService elasticsearchSyncService,
+                      ChatPromptService chatPromptService,
+                      AnswerCacheService answerCacheService,
+                      ConversationMemoryService conversationMemoryService,
+                      DocumentInsightService documentInsightService,
+                      @Value("${app.chat.batch.parallelism}") int batchParallelism,
+                      @Value("${app.chat.batch.max-in-flight}") int batchMaxInFlight,
+                      @Value("${app.llm.gateway.queue-deadline}") Duration batchQuestionWait) {
         this.chatSessionRepository = chatSessionRepository;
         this.documentRepository = documentRepository;
-        this.ollamaService = ollamaService;
+        this.modelRouter = modelRouter;
         this.elasticsearchSyncService = elasticsearchSyncService;
+        this.chatPromptService = chatPromptService;
+        this.answerCacheService = answerCacheService;
+        this.conversationMemoryService = conversationMemoryService;
+        this.documentInsightService = documentInsightService;
+        this.batchParallelism = batchParallelism;
+        this.batchQuestionWait = batchQuestionWait;
+        this.batchQuestionPermits = new Semaphore(batchMaxInFlight, true);
     }
 
     public ChatSession startChatSession(String documentId) {
@@ -46,7 +83,7 @@ public class ChatService {
         ChatSession session = new ChatSession(
                 documentId,
                 document.getFileName(),
-                document.getExtractedText()
+                document.getFileHash()
         );
 
         // Save session to MongoDB
@@ -65,6 +102,10 @@ public class ChatService {
     }
 
     public String chat(String sessionId, String userMessage) {
+        return chat(sessionId, userMessage, ModelPriority.INTERACTIVE);
+    }
+
+    public String chat(String sessionId, String userMessage, ModelPriority priority) {
 
         if (StringUtils.isBlank(userMessage)) {
             log.info("No userMessage provided, returning default message.");
@@ -73,33 +114,200 @@ public class ChatService {
 
         log.info("Processing chat message for session: {}", sessionId);
 
-        // Retrieve chat session
-        ChatSession session = getChatSession(sessionId);
+        for (int attempt = 1; ; attempt++) {
+            // Retrieve chat session and add user message to it
+            ChatSession session = loadRecentHistory(sessionId);
+            ChatMessage userMsg = new ChatMessage(Role.user, userMessage);
+            session.addMessage(userMsg);
+
+            String assistantResponse = answer(session, userMessage, priority);
+            try {
+                completeTurn(session, userMsg, assistantResponse);
+                return assistantResponse;
+            } catch (OptimisticLockingFailureException e) {
+                // Another turn landed while answering, answer again with it in the history
+                if (attempt >= MAX_TURN_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Concurrent turn on session {}, answering again (attempt {})", sessionId, attempt + 1);
+            }
+        }
+    }
+
+    public Flux<BatchAnswer> chatBatch(String sessionId, List<String> questions) {
+
+        log.info("Processing batch of {} questions for session: {}", questions.size(), sessionId);
+
+        // Every question is answered against the same history, so they are independent and can run side by side
+        ChatSession session = loadRecentHistory(sessionId);
+        BatchAnswer[] results = new BatchAnswer[questions.size()];
+
+        // The first question runs alone and leaves the document prefix in the backend's prompt cache,
+        // the rest then fan out and reuse it. Answers are emitted as they complete
+        return answerInBatchAsync(session, 0, questions.getFirst())
+                .concatWith(Flux.range(1, questions.size() - 1)
+                        .flatMap(index -> answerInBatchAsync(session, index, questions.get(index)), batchParallelism))
+                .doOnNext(result -> results[result.index()] = result)
+                .concatWith(Mono.<BatchAnswer>fromRunnable(() -> completeBatch(session, results))
+                        .subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    public Flux<String> streamChat(String sessionId, String userMessage) {
 
-        // Add user message to session
+        log.info("Processing streaming chat message for session: {}", sessionId);
+
+        // Retrieve chat session and add user message to it
+        ChatSession session = loadRecentHistory(sessionId);
         ChatMessage userMsg = new ChatMessage(Role.user, userMessage);
         session.addMessage(userMsg);
 
+        // A precomputed or cached answer is sent as a single token
+        String precomputed = documentInsightService.findPrecomputedAnswer(session, userMessage).orElse(null);
+        if (precomputed != null) {
+            return Flux.just(precomputed)
+                    .concatWith(Mono.<String>fromRunnable(() -> completeTurn(session, userMsg, precomputed))
+                            .subscribeOn(Schedulers.boundedElastic()));
+        }
+        AnswerCacheService.Lookup cached = answerCacheService.lookup(session, userMessage);
+        if (cached.isHit()) {
+            return Flux.just(cached.answer())
+                    .concatWith(Mono.<String>fromRunnable(() -> completeTurn(session, userMsg, cached.answer()))
+                            .subscribeOn(Schedulers.boundedElastic()));
+        }
+
+        // Tokens are forwarded as they arrive, the assembled answer is persisted once the model finishes.
+        // It cannot be regenerated once sent, so a concurrent turn in the meantime fails the stream instead
+        String prompt = chatPromptService.buildPrompt(session, userMessage);
+        StringBuilder assistantResponse = new StringBuilder();
+        return modelRouter.stream(userMessage, prompt, session.getId())
+                .doOnNext(assistantResponse::append)
+                .concatWith(Mono.<String>fromRunnable(() -> {
+                    answerCacheService.store(cached, assistantResponse.toString());
+                    completeTurn(session, userMsg, assistantResponse.toString());
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private String answer(ChatSession session, String userMessage, ModelPriority priority) {
+
+        // Summary and suggested questions precomputed at ingestion are served as they are
+        String precomputed = documentInsightService.findPrecomputedAnswer(session, userMessage).orElse(null);
+        if (precomputed != null) {
+            return precomputed;
+        }
+
+        // Serve repeated questions on the same document without touching the model
+        AnswerCacheService.Lookup cached = answerCacheService.lookup(session, userMessage);
+        if (cached.isHit()) {
+            return cached.answer();
+        }
+
         // Build prompt with context and generate response from Ollama
-        String prompt = PromptBuilder.buildContextualPrompt(session, userMessage);
-        String assistantResponse = ollamaService.generateText(prompt);
+        String prompt = chatPromptService.buildPrompt(session, userMessage);
+        String assistantResponse = modelRouter.generate(userMessage, prompt, priority, session.getId());
         log.info("Generated response from Ollama, length: {} characters", assistantResponse.length());
+        answerCacheService.store(cached, assistantResponse);
+        return assistantResponse;
+    }
 
-        // Add assistant response to session
+    private Mono<BatchAnswer> answerInBatchAsync(ChatSession session, int index, String question) {
+        return Mono.fromCallable(() -> answerInBatch(session, index, question)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private BatchAnswer answerInBatch(ChatSession session, int index, String question) {
+
+        // Each question sees the shared history plus itself, never the other questions of the batch
+        List<ChatMessage> messages = session.getMessages() == null ? new ArrayList<>() : new ArrayList<>(session.getMessages());
+        ChatSession view = session.toBuilder().messages(messages).build();
+        view.addMessage(new ChatMessage(Role.user, question));
+
+        try {
+            acquireBatchPermit();
+            try {
+                return new BatchAnswer(index, question, answer(view, question, ModelPriority.INTERACTIVE), null);
+            } finally {
+                batchQuestionPermits.release();
+            }
+        } catch (RuntimeException e) {
+            // One failed question does not fail the rest of the batch
+            log.warn("Batch question {} failed for session {}: {}", index, session.getId(), e.getMessage());
+            return new BatchAnswer(index, question, null, e.getMessage());
+        }
+    }
+
+    // Waits as long as the gateway would, rather than adding to its queue
+    private void acquireBatchPermit() {
+        try {
+            if (!batchQuestionPermits.tryAcquire(batchQuestionWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new ServiceUnavailableException("Too many batch questions in progress, please retry later", batchQuestionWait.toSeconds());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Interrupted while waiting to answer a batch question", batchQuestionWait.toSeconds());
+        }
+    }
+
+    private void completeBatch(ChatSession session, BatchAnswer[] results) {
+
+        // All answered turns are appended in question order with one atomic update
+        List<ChatMessage> messages = new ArrayList<>();
+        for (BatchAnswer result : results) {
+            if (result != null && result.answer() != null) {
+                messages.add(new ChatMessage(Role.user, result.question()));
+                messages.add(new ChatMessage(Role.assistant, result.answer()));
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        // The answers were made against the history read when the batch started, so turns that landed since do not
+        // invalidate them. They are appended on the latest version rather than dropped after being streamed
+        ChatSession target = session;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                persistMessages(target, messages);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= MAX_TURN_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Concurrent turn on session {}, appending the batch on the latest version (attempt {})",
+                        session.getId(), attempt + 1);
+                target = loadRecentHistory(session.getId());
+            }
+        }
+    }
+
+    private ChatSession loadRecentHistory(String sessionId) {
+        // Retrieve chat session with only the history the prompt can use
+        return chatSessionRepository.findWithRecentMessages(sessionId, HISTORY_WINDOW)
+                .orElseThrow(() -> new ResourceNotFoundException("Chat session not found: " + sessionId));
+    }
+
+    private void completeTurn(ChatSession session, ChatMessage userMsg, String assistantResponse) {
+
+        // Append both messages of the turn to MongoDB in one atomic update
         ChatMessage assistantMsg = new ChatMessage(Role.assistant, assistantResponse);
-        session.addMessage(assistantMsg);
+        persistMessages(session, List.of(userMsg, assistantMsg));
+    }
 
-        // Save updated session to MongoDB
-        chatSessionRepository.save(session);
+    // Fails with OptimisticLockingFailureException when another turn was appended since the session was read
+    private void persistMessages(ChatSession session, List<ChatMessage> messages) {
+        ChatSession updated = chatSessionRepository.appendMessages(session.getId(), session.getVersion(), messages);
 
         // Sync to Elasticsearch for fast search
-        elasticsearchSyncService.syncSession(session);
+        elasticsearchSyncService.syncSession(updated);
 
-        return assistantResponse;
+        // Fold turns leaving the prompt window into the running summary
+        conversationMemoryService.refreshIfDue(updated);
     }
 
     public List<ChatSession> getAllSessions() {
         log.info("Retrieving all chat sessions");
         return chatSessionRepository.findAll();
     }
+
+    // Either answer or error is set for each question of a batch
+    public record BatchAnswer(int index, String question, String answer, String error) {
+    }
 }
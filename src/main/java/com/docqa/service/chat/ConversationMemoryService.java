@@ -0,0 +1,96 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.repository.ChatSessionRepository;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.util.PromptBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@Slf4j
+public class ConversationMemoryService {
+
+    private final ChatSessionRepository chatSessionRepository;
+    private final OllamaService ollamaService;
+    private final ExecutorService summaryExecutor;
+    private final boolean enabled;
+    private final int keepRecent;
+    private final int refreshEvery;
+    private final int maxSummaryChars;
+
+    // Sessions with a refresh queued or running, so a burst of turns schedules only one
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public ConversationMemoryService(ChatSessionRepository chatSessionRepository,
+                                     OllamaService ollamaService,
+                                     @Qualifier("conversationSummaryExecutor") ExecutorService summaryExecutor,
+                                     @Value("${app.chat.memory.enabled}") boolean enabled,
+                                     @Value("${app.chat.memory.keep-recent}") int keepRecent,
+                                     @Value("${app.chat.memory.refresh-every}") int refreshEvery,
+                                     @Value("${app.chat.memory.max-summary-chars}") int maxSummaryChars) {
+        this.chatSessionRepository = chatSessionRepository;
+        this.ollamaService = ollamaService;
+        this.summaryExecutor = summaryExecutor;
+        this.enabled = enabled;
+        this.keepRecent = keepRecent;
+        this.refreshEvery = refreshEvery;
+        this.maxSummaryChars = maxSummaryChars;
+    }
+
+    public void refreshIfDue(ChatSession session) {
+        if (!enabled || session.getMessageCount() == null) {
+            return;
+        }
+
+        // Fold everything but the most recent messages once enough unsummarized ones have built up
+        int summarized = session.getSummarizedMessageCount() == null ? 0 : session.getSummarizedMessageCount();
+        int foldUpTo = session.getMessageCount() - keepRecent;
+        if (foldUpTo - summarized < refreshEvery || !refreshing.add(session.getId())) {
+            return;
+        }
+
+        try {
+            summaryExecutor.execute(() -> {
+                try {
+                    refresh(session.getId(), session.getConversationSummary(), summarized, foldUpTo);
+                } catch (Exception e) {
+                    log.warn("Failed to refresh conversation summary for session {}", session.getId(), e);
+                } finally {
+                    refreshing.remove(session.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(session.getId());
+            log.debug("Summary executor is busy, session {} will be summarized on a later turn", session.getId());
+        }
+    }
+
+    private void refresh(String sessionId, String previousSummary, int summarized, int foldUpTo) {
+        long startTime = System.currentTimeMillis();
+
+        List<ChatMessage> messages = chatSessionRepository.findMessageRange(sessionId, summarized, foldUpTo - summarized);
+        String prompt = PromptBuilder.buildSummaryPrompt(previousSummary, messages, maxSummaryChars);
+        String summary = ollamaService.generateText(prompt, ModelPriority.BACKGROUND, sessionId).trim();
+        if (summary.length() > maxSummaryChars) {
+            summary = summary.substring(0, maxSummaryChars);
+        }
+
+        if (chatSessionRepository.updateSummary(sessionId, summarized, summary, foldUpTo)) {
+            log.info("Folded messages {}-{} of session {} into its summary in {}ms", summarized, foldUpTo,
+                    sessionId, System.currentTimeMillis() - startTime);
+        } else {
+            log.debug("Summary of session {} changed while refreshing, discarding this one", sessionId);
+        }
+    }
+}
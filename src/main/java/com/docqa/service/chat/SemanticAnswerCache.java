@@ -0,0 +1,91 @@
+package com.docqa.service.chat;
+
+import com.docqa.service.llm.ModelGateway;
+import com.docqa.util.BoundedCache;
+import com.docqa.util.VectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class SemanticAnswerCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final ModelGateway modelGateway;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntriesPerDocument;
+    private final long ttlNanos;
+
+    // One vector store per document, bounded in documents and in entries per document
+    private final BoundedCache<String, VectorStore<CachedAnswer>> documents;
+
+    public SemanticAnswerCache(EmbeddingModel embeddingModel,
+                               ModelGateway modelGateway,
+                               @Value("${app.cache.semantic.enabled}") boolean enabled,
+                               @Value("${app.cache.semantic.similarity-threshold}") double similarityThreshold,
+                               @Value("${app.cache.semantic.max-documents}") int maxDocuments,
+                               @Value("${app.cache.semantic.max-entries-per-document}") int maxEntriesPerDocument,
+                               @Value("${app.cache.answers.ttl}") Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.modelGateway = modelGateway;
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntriesPerDocument = maxEntriesPerDocument;
+        this.ttlNanos = ttl.toNanos();
+        this.documents = new BoundedCache<>(maxDocuments, store -> 1);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public float[] embed(String question) {
+        // The embedding runs on the same Ollama as the chat, it only gets a slot nobody is waiting for
+        if (!modelGateway.tryAcquire()) {
+            log.debug("Model busy, skipping semantic cache lookup");
+            return null;
+        }
+        try {
+            return embeddingModel.embed(question);
+        } catch (Exception e) {
+            // The cache is an optimisation, a failing embedding model must not fail the chat
+            log.warn("Failed to embed question for semantic cache: {}", e.getMessage());
+            return null;
+        } finally {
+            modelGateway.release();
+        }
+    }
+
+    public Optional<String> findSimilar(String documentKey, float[] embedding) {
+        VectorStore<CachedAnswer> store = documents.get(documentKey);
+        long now = System.nanoTime();
+        VectorStore.Match<CachedAnswer> match = store != null ? store.nearest(embedding, answer -> !answer.isExpired(now, ttlNanos)) : null;
+
+        if (match == null || match.similarity() < similarityThreshold) {
+            return Optional.empty();
+        }
+
+        log.info("Semantic cache hit for document {} with similarity {}", documentKey, String.format("%.3f", match.similarity()));
+        return Optional.of(match.payload().answer());
+    }
+
+    public void store(String documentKey, float[] embedding, String answer) {
+        documents.getOrLoad(documentKey, key -> new VectorStore<>(maxEntriesPerDocument))
+                .add(embedding, new CachedAnswer(answer, System.nanoTime()));
+    }
+
+    // Answers expire on the same TTL as the exact tiers
+    private record CachedAnswer(String answer, long storedAt) {
+
+        boolean isExpired(long now, long ttlNanos) {
+            return ttlNanos > 0 && now - storedAt >= ttlNanos;
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatSession;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.service.retrieval.RetrievalService;
+import com.docqa.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+@Service
+@Slf4j
+public class SessionWarmUpService {
+
+    private static final int MAX_TRACKED_SESSIONS = 10000;
+
+    private final ChatPromptService chatPromptService;
+    private final OllamaService ollamaService;
+    private final RetrievalService retrievalService;
+    private final boolean enabled;
+
+    // Sessions warmed within the keep-alive window, whose prefix should still be cached
+    private final BoundedCache<String, Boolean> recentlyWarmed;
+
+    public SessionWarmUpService(ChatPromptService chatPromptService,
+                                OllamaService ollamaService,
+                                RetrievalService retrievalService,
+                                @Value("${app.chat.warm-up.enabled}") boolean enabled,
+                                @Value("${spring.ai.ollama.chat.options.keep-alive}") Duration keepAlive) {
+        this.chatPromptService = chatPromptService;
+        this.ollamaService = ollamaService;
+        this.retrievalService = retrievalService;
+        this.enabled = enabled;
+        this.recentlyWarmed = new BoundedCache<>(MAX_TRACKED_SESSIONS, warmed -> 1, keepAlive);
+    }
+
+    @Async
+    public void warmUp(ChatSession session) {
+        if (!enabled || recentlyWarmed.get(session.getId()) != null) {
+            return;
+        }
+
+        // A retrieval prompt only shares a one-sentence prefix between turns, not worth a model slot
+        if (retrievalService.usesRetrieval(session.getDocumentId())) {
+            return;
+        }
+        recentlyWarmed.put(session.getId(), Boolean.TRUE);
+
+        try {
+            if (!ollamaService.warmUp(chatPromptService.buildPrefix(session), session.getId())) {
+                // Model busy, the next time the session is opened tries again
+                recentlyWarmed.invalidate(session.getId());
+                log.debug("Model busy, skipped warm-up for session {}", session.getId());
+            }
+        } catch (Exception e) {
+            // Best effort, the first question simply pays the full prompt cost
+            recentlyWarmed.invalidate(session.getId());
+            log.debug("Skipped warm-up for session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+}
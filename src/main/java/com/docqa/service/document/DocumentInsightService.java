@@ -0,0 +1,181 @@
+package com.docqa.service.document;
+
+import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentEntity;
+import com.docqa.model.SuggestedQuestion;
+import com.docqa.service.chat.AnswerCacheService;
+import com.docqa.service.chat.ChatPromptService;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.util.BoundedCache;
+import com.docqa.util.PromptBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Slf4j
+public class DocumentInsightService {
+
+    // Opening questions that ask for the document summary in one of its usual phrasings
+    private static final Pattern SUMMARY_REQUEST = Pattern.compile(
+            "^(please |can you |could you )?(summari[sz]e|give me a summary|summary|tl;?dr|overview|give me an overview)"
+                    + "( (of )?(this|the) (document|pdf|file))?( please)?$"
+                    + "|^what is (this|the) (document|pdf|file) about$");
+
+    private final DocumentSummaryService documentSummaryService;
+    private final ChatPromptService chatPromptService;
+    private final AnswerCacheService answerCacheService;
+    private final OllamaService ollamaService;
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService insightExecutor;
+    private final boolean enabled;
+    private final int questionCount;
+
+    // Documents with a precompute queued or running
+    private final Set<String> precomputing = ConcurrentHashMap.newKeySet();
+
+    // Finished insights never change, so opening turns read them from here instead of Mongo
+    private final BoundedCache<String, Insights> insights;
+
+    public DocumentInsightService(DocumentSummaryService documentSummaryService,
+                                  ChatPromptService chatPromptService,
+                                  AnswerCacheService answerCacheService,
+                                  OllamaService ollamaService,
+                                  MongoTemplate mongoTemplate,
+                                  @Qualifier("documentInsightExecutor") ExecutorService insightExecutor,
+                                  @Value("${app.precompute.enabled}") boolean enabled,
+                                  @Value("${app.precompute.suggested-questions}") int questionCount,
+                                  @Value("${app.precompute.max-cached-documents}") int maxCachedDocuments) {
+        this.documentSummaryService = documentSummaryService;
+        this.chatPromptService = chatPromptService;
+        this.answerCacheService = answerCacheService;
+        this.ollamaService = ollamaService;
+        this.mongoTemplate = mongoTemplate;
+        this.insightExecutor = insightExecutor;
+        this.enabled = enabled;
+        this.questionCount = questionCount;
+        this.insights = new BoundedCache<>(maxCachedDocuments, cached -> 1);
+    }
+
+    public void precomputeIfMissing(DocumentEntity document) {
+        if (!enabled || document.getSuggestedQuestions() != null || !precomputing.add(document.getId())) {
+            return;
+        }
+
+        try {
+            insightExecutor.execute(() -> {
+                try {
+                    precompute(document);
+                } catch (Exception e) {
+                    log.warn("Failed to precompute insights for document {}, the next upload retries", document.getId(), e);
+                } finally {
+                    precomputing.remove(document.getId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            precomputing.remove(document.getId());
+            log.warn("Insight queue is full, skipping precompute for document {}", document.getId());
+        }
+    }
+
+    public Optional<String> findPrecomputedAnswer(ChatSession session, String question) {
+        if (!enabled || !PromptBuilder.historyWindow(session).isEmpty()) {
+            return Optional.empty();
+        }
+
+        Insights precomputed = insights.get(session.getDocumentId());
+        if (precomputed == null) {
+            precomputed = loadInsights(session.getDocumentId());
+            if (precomputed.isComplete()) {
+                insights.put(session.getDocumentId(), precomputed);
+            }
+        }
+
+        String normalized = AnswerCacheService.normalize(question);
+        if (precomputed.summary() != null && SUMMARY_REQUEST.matcher(normalized).matches()) {
+            log.info("Serving precomputed summary for session {}", session.getId());
+            return Optional.of(precomputed.summary());
+        }
+        String answer = precomputed.answers() != null ? precomputed.answers().get(normalized) : null;
+        if (answer != null) {
+            log.info("Serving precomputed answer to a suggested question for session {}", session.getId());
+        }
+        return Optional.ofNullable(answer);
+    }
+
+    // Only the two precomputed fields are read, a blank summary counts as none
+    private Insights loadInsights(String documentId) {
+        Query query = Query.query(where("_id").is(documentId));
+        query.fields().include("summary", "suggestedQuestions");
+        DocumentEntity document = mongoTemplate.findOne(query, DocumentEntity.class);
+        if (document == null) {
+            return new Insights(null, null);
+        }
+
+        String summary = document.getSummary() != null && !document.getSummary().isBlank() ? document.getSummary() : null;
+        Map<String, String> answers = document.getSuggestedQuestions() == null ? null : document.getSuggestedQuestions().stream()
+                .collect(Collectors.toMap(suggested -> AnswerCacheService.normalize(suggested.getQuestion()),
+                        SuggestedQuestion::getAnswer, (first, second) -> first));
+        return new Insights(summary, answers);
+    }
+
+    private void precompute(DocumentEntity document) {
+        long startTime = System.currentTimeMillis();
+
+        // Step 1: Summary, shared with the summary endpoint. Without one there is nothing to base the questions on
+        String summary = documentSummaryService.summarize(document.getId());
+        if (summary == null || summary.isBlank()) {
+            log.warn("Empty summary for document {}, skipping suggested questions", document.getId());
+            return;
+        }
+
+        // Step 2: Questions a reader is likely to ask first
+        String prompt = PromptBuilder.buildSuggestedQuestionsPrompt(document.getFileName(), summary, questionCount);
+        List<String> questions = ollamaService.generateText(prompt, ModelPriority.BACKGROUND, document.getId()).lines()
+                .map(line -> line.replaceFirst("^\\s*([-*•]|\\d+[.)])\\s*", "").trim())
+                .filter(line -> line.endsWith("?"))
+                .limit(questionCount)
+                .toList();
+
+        // Step 3: Answer each as an opening question, seeding the answer cache so paraphrases hit as well
+        ChatSession opening = new ChatSession(document.getId(), document.getFileName(), document.getFileHash());
+        List<SuggestedQuestion> answered = new ArrayList<>();
+        for (String question : questions) {
+            String answer = ollamaService.generateText(chatPromptService.buildPrompt(opening, question), ModelPriority.BACKGROUND, document.getId());
+            answerCacheService.store(answerCacheService.entryFor(opening, question), answer);
+            answered.add(new SuggestedQuestion(question, answer));
+        }
+
+        mongoTemplate.updateFirst(Query.query(where("_id").is(document.getId())),
+                new Update().set("suggestedQuestions", answered), DocumentEntity.class);
+        log.info("Precomputed summary and {} suggested questions for document {} in {}ms", answered.size(),
+                document.getId(), System.currentTimeMillis() - startTime);
+    }
+
+    // Answers by normalized suggested question, null until precompute has stored them
+    private record Insights(String summary, Map<String, String> answers) {
+
+        // Precompute stores the summary first and the suggested questions last
+        boolean isComplete() {
+            return summary != null && answers != null;
+        }
+    }
+}
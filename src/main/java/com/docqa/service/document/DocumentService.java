@@ -1,44 +1,169 @@
 package com.docqa.service.document;
 
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.model.DocumentChunk;
 import com.docqa.model.DocumentEntity;
 import com.docqa.repository.DocumentRepository;
+import com.docqa.service.retrieval.RetrievalService;
+import com.docqa.util.BufferPool;
 import com.docqa.util.FileHashUtil;
+import com.docqa.util.SpooledUpload;
+import com.docqa.util.TextChunker;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.docqa.mapper.DocumentMapper.createNewDocument;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 @Slf4j
 public class DocumentService {
 
     private final DocumentRepository documentRepository;
+    private final BufferPool uploadBufferPool;
+    private final PdfExtractionService pdfExtractionService;
+    private final DocumentTextService documentTextService;
+    private final RetrievalService retrievalService;
+    private final DocumentInsightService documentInsightService;
+    private final MongoTemplate mongoTemplate;
+    private final int chunkSize;
 
-    public DocumentService(DocumentRepository documentRepository) {
+    // Uploads currently being extracted, keyed by file hash
+    private final Map<String, CompletableFuture<DocumentEntity>> inFlightUploads = new ConcurrentHashMap<>();
+
+    public DocumentService(DocumentRepository documentRepository,
+                           BufferPool uploadBufferPool,
+                           PdfExtractionService pdfExtractionService,
+                           DocumentTextService documentTextService,
+                           RetrievalService retrievalService,
+                           DocumentInsightService documentInsightService,
+                           MongoTemplate mongoTemplate,
+                           @Value("${app.storage.chunk-size}") int chunkSize) {
         this.documentRepository = documentRepository;
+        this.uploadBufferPool = uploadBufferPool;
+        this.pdfExtractionService = pdfExtractionService;
+        this.documentTextService = documentTextService;
+        this.retrievalService = retrievalService;
+        this.documentInsightService = documentInsightService;
+        this.mongoTemplate = mongoTemplate;
+        this.chunkSize = chunkSize;
     }
 
     public String uploadDocument(MultipartFile file) {
+        try (SpooledUpload upload = spoolUpload(file)) {
+            return storeDocument(upload, () -> { });
+        }
+    }
+
+    public SpooledUpload spoolUpload(MultipartFile file) {
 
         log.info("Uploading document: {}, file size: {}", file.getOriginalFilename(), file.getSize());
 
-        // Calculate file hash to check for duplicates
-        String fileHash = FileHashUtil.calculateFileHash(file);
-        log.info("Calculated file hash: {}", fileHash);
+        // Stream the upload once into a temp file, calculating the hash on the way
+        SpooledUpload upload = FileHashUtil.spoolAndHash(file, uploadBufferPool);
+        log.info("Calculated file hash: {}", upload.fileHash());
+        return upload;
+    }
+
+    public String storeDocument(SpooledUpload upload, Runnable onExtracted) {
 
         // Check if document with the same hash already exists
-        DocumentEntity document = documentRepository.findByFileHash(fileHash).orElseGet(() -> createNewDocument(file, fileHash));
+        DocumentEntity document = documentRepository.findFirstByFileHashOrderByIdAsc(upload.fileHash()).orElseGet(() -> createOnce(upload));
+        onExtracted.run();
 
-        // Update the updatedAt timestamp
-        document.setUpdatedAt(LocalDateTime.now());
-        documentRepository.save(document);
+        // Update the updatedAt timestamp, without rewriting fields filled in by background work
+        mongoTemplate.updateFirst(Query.query(where("_id").is(document.getId())),
+                new Update().set("updatedAt", LocalDateTime.now()), DocumentEntity.class);
+
+        // Summary and suggested questions are prepared in the background, at low priority
+        documentInsightService.precomputeIfMissing(document);
 
         log.info("Document saved with ID: {}", document.getId());
         return document.getId();
     }
 
-}
+    public DocumentEntity getDocument(String documentId) {
+        return documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found: " + documentId));
+    }
+
+    private DocumentEntity createOnce(SpooledUpload upload) {
+        CompletableFuture<DocumentEntity> created = new CompletableFuture<>();
+        CompletableFuture<DocumentEntity> inFlight = inFlightUploads.putIfAbsent(upload.fileHash(), created);
+
+        // Another request is already extracting this PDF, share its result
+        if (inFlight != null) {
+            log.info("Extraction already in progress for file hash {}, waiting for it", upload.fileHash());
+            return await(inFlight);
+        }
 
+        try {
+            // Re-check in case a previous leader finished between our lookup and registration
+            created.complete(documentRepository.findFirstByFileHashOrderByIdAsc(upload.fileHash())
+                    .orElseGet(() -> insertNewDocument(upload)));
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+        } finally {
+            inFlightUploads.remove(upload.fileHash(), created);
+        }
+        return await(created);
+    }
+
+    private DocumentEntity insertNewDocument(SpooledUpload upload) {
+        log.info("New PDF with file hash {}, extracting text from file: {}", upload.fileHash(), upload.fileName());
+        List<String> pages = pdfExtractionService.extractPages(upload.file());
+        List<DocumentChunk> chunks = TextChunker.chunkPages(pages, chunkSize);
+        retrievalService.annotate(chunks);
+
+        // Text is stored before the metadata, so a document found by file hash always has its chunks
+        String documentId = new ObjectId().toHexString();
+        try {
+            documentTextService.saveChunks(documentId, chunks);
+        } catch (RuntimeException e) {
+            log.error("Failed to store text chunks for document {}, rolling back", documentId);
+            documentTextService.deleteChunks(documentId);
+            throw e;
+        }
+
+        DocumentEntity document = createNewDocument(upload, pages, chunks);
+        document.setId(documentId);
+        try {
+            return documentRepository.insert(document);
+        } catch (DuplicateKeyException e) {
+            // The unique fileHash index caught a concurrent insert from another node, our copy of the text goes
+            log.info("Document with file hash {} was stored concurrently, reusing it", upload.fileHash());
+            documentTextService.deleteChunks(documentId);
+            return documentRepository.findFirstByFileHashOrderByIdAsc(upload.fileHash()).orElseThrow(() -> e);
+        } catch (RuntimeException e) {
+            log.error("Failed to store document {}, removing its text chunks", documentId);
+            documentTextService.deleteChunks(documentId);
+            throw e;
+        }
+    }
+
+    private static DocumentEntity await(CompletableFuture<DocumentEntity> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+}
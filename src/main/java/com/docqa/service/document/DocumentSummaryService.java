@@ -0,0 +1,209 @@
+package com.docqa.service.document;
+
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.model.DocumentChunk;
+import com.docqa.model.DocumentEntity;
+import com.docqa.repository.DocumentRepository;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.util.PromptBudget;
+import com.docqa.util.PromptBuilder;
+import com.docqa.util.TokenEstimator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Slf4j
+public class DocumentSummaryService {
+
+    // Room left in each prompt for the instructions around a section or the list of partial summaries
+    private static final int PROMPT_OVERHEAD_TOKENS = 200;
+
+    private final DocumentRepository documentRepository;
+    private final DocumentTextService documentTextService;
+    private final OllamaService ollamaService;
+    private final MongoTemplate mongoTemplate;
+    private final ExecutorService summaryExecutor;
+    private final PromptBudget promptBudget;
+    private final TokenEstimator tokenEstimator;
+
+    // One summarization per document at a time, concurrent callers share its result
+    private final Map<String, CompletableFuture<String>> inFlightSummaries = new ConcurrentHashMap<>();
+
+    public DocumentSummaryService(DocumentRepository documentRepository,
+                                  DocumentTextService documentTextService,
+                                  OllamaService ollamaService,
+                                  MongoTemplate mongoTemplate,
+                                  @Qualifier("documentSummaryExecutor") ExecutorService summaryExecutor,
+                                  PromptBudget promptBudget,
+                                  TokenEstimator tokenEstimator) {
+        this.documentRepository = documentRepository;
+        this.documentTextService = documentTextService;
+        this.ollamaService = ollamaService;
+        this.mongoTemplate = mongoTemplate;
+        this.summaryExecutor = summaryExecutor;
+        this.promptBudget = promptBudget;
+        this.tokenEstimator = tokenEstimator;
+    }
+
+    public String summarize(String documentId) {
+        DocumentEntity document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new ResourceNotFoundException("Document not found: " + documentId));
+
+        // Documents are unique by file hash, so a re-upload finds the summary stored by the first one
+        if (document.getSummary() != null && !document.getSummary().isBlank()) {
+            log.info("Returning stored summary for document {}", documentId);
+            return document.getSummary();
+        }
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightSummaries.putIfAbsent(documentId, created);
+        if (inFlight != null) {
+            log.info("Summary of document {} already in progress, waiting for it", documentId);
+            return await(inFlight);
+        }
+
+        try {
+            String summary = mapReduce(document);
+
+            // A blank summary only means no text was stored yet, it is returned but never kept
+            if (!summary.isBlank()) {
+                mongoTemplate.updateFirst(Query.query(where("_id").is(documentId)),
+                        new Update().set("summary", summary).set("summarizedAt", LocalDateTime.now()), DocumentEntity.class);
+            }
+            created.complete(summary);
+        } catch (RuntimeException e) {
+            created.completeExceptionally(e);
+        } finally {
+            inFlightSummaries.remove(documentId, created);
+        }
+        return await(created);
+    }
+
+    private String mapReduce(DocumentEntity document) {
+        long startTime = System.currentTimeMillis();
+        int sectionTokens = promptBudget.promptTokens() - PROMPT_OVERHEAD_TOKENS;
+
+        // Step 1: Split the stored chunks into sections that each fit one prompt
+        List<String> sections = splitIntoSections(document.getId(), sectionTokens);
+        log.info("Summarizing document {} in {} sections", document.getId(), sections.size());
+
+        // Step 2: Map, every section is summarized in parallel, bounded by the model gateway
+        List<CompletableFuture<String>> partials = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            String prompt = PromptBuilder.buildSectionSummaryPrompt(document.getFileName(), sections.get(i), i + 1, sections.size());
+            partials.add(generateAsync(prompt, document.getId()));
+        }
+        List<String> summaries = joinAll(partials);
+
+        // Step 3: Reduce, partial summaries are merged in groups until one remains
+        int round = 0;
+        while (summaries.size() > 1) {
+            List<List<String>> groups = groupForMerge(summaries, sectionTokens);
+            log.info("Merging {} partial summaries of document {} in {} groups (round {})",
+                    summaries.size(), document.getId(), groups.size(), ++round);
+            List<CompletableFuture<String>> merged = new ArrayList<>();
+            for (List<String> group : groups) {
+                merged.add(group.size() == 1
+                        ? CompletableFuture.completedFuture(group.getFirst())
+                        : generateAsync(PromptBuilder.buildMergeSummaryPrompt(document.getFileName(), group), document.getId()));
+            }
+            summaries = joinAll(merged);
+        }
+
+        log.info("Summarized document {} in {}ms", document.getId(), System.currentTimeMillis() - startTime);
+        return summaries.isEmpty() ? "" : summaries.getFirst();
+    }
+
+    private List<String> splitIntoSections(String documentId, int sectionTokens) {
+        List<String> sections = new ArrayList<>();
+        StringBuilder section = new StringBuilder();
+        int currentTokens = 0;
+        try (Stream<DocumentChunk> chunks = documentTextService.streamChunks(documentId)) {
+            for (DocumentChunk chunk : (Iterable<DocumentChunk>) chunks::iterator) {
+                String text = PromptBuilder.truncateToTokens(chunk.getText(), sectionTokens, tokenEstimator);
+
+                // Running total, the estimate rounds up per chunk so the sum never undercounts the section
+                int textTokens = tokenEstimator.estimate(text);
+                if (!section.isEmpty() && currentTokens + textTokens > sectionTokens) {
+                    sections.add(section.toString().trim());
+                    section.setLength(0);
+                    currentTokens = 0;
+                }
+                section.append(text);
+                currentTokens += textTokens;
+            }
+        }
+        if (!section.toString().isBlank()) {
+            sections.add(section.toString().trim());
+        }
+        return sections;
+    }
+
+    // Consecutive summaries packed into merge prompts, each capped so a group always takes at least two
+    private List<List<String>> groupForMerge(List<String> summaries, int sectionTokens) {
+        int maxPartTokens = sectionTokens / 2;
+        List<List<String>> groups = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        int groupTokens = 0;
+        for (String summary : summaries) {
+            String part = PromptBuilder.truncateToTokens(summary, maxPartTokens, tokenEstimator);
+            int partTokens = tokenEstimator.estimate(part);
+            if (!group.isEmpty() && groupTokens + partTokens > sectionTokens) {
+                groups.add(group);
+                group = new ArrayList<>();
+                groupTokens = 0;
+            }
+            group.add(part);
+            groupTokens += partTokens;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private CompletableFuture<String> generateAsync(String prompt, String documentId) {
+        return CompletableFuture.supplyAsync(
+                () -> ollamaService.generateText(prompt, ModelPriority.BACKGROUND, documentId).trim(), summaryExecutor);
+    }
+
+    private static List<String> joinAll(List<CompletableFuture<String>> futures) {
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.docqa.service.document;
+
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.model.DocumentChunk;
+import com.docqa.repository.DocumentChunkRepository;
+import com.docqa.service.retrieval.RetrievalService;
+import com.docqa.util.BoundedCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Slf4j
+public class DocumentTextService {
+
+    private final DocumentChunkRepository documentChunkRepository;
+    private final MongoTemplate mongoTemplate;
+    private final RetrievalService retrievalService;
+
+    // Full document text shared by every session on the same document, bounded by total characters
+    private final BoundedCache<String, String> documentTextCache;
+
+    public DocumentTextService(DocumentChunkRepository documentChunkRepository,
+                               MongoTemplate mongoTemplate,
+                               RetrievalService retrievalService,
+                               @Value("${app.cache.document-text.max-chars}") long maxCachedChars) {
+        this.documentChunkRepository = documentChunkRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.retrievalService = retrievalService;
+        this.documentTextCache = new BoundedCache<>(maxCachedChars, String::length);
+    }
+
+    public void saveChunks(String documentId, List<DocumentChunk> chunks) {
+        chunks.forEach(chunk -> chunk.setDocumentId(documentId));
+        documentChunkRepository.insert(chunks);
+        invalidate(documentId);
+        log.info("Stored {} text chunks for document {}", chunks.size(), documentId);
+    }
+
+    // Overwrites chunks in place by sequence, so readers never see the document without text and a rerun is harmless
+    public void replaceChunks(String documentId, List<DocumentChunk> chunks) {
+        if (!chunks.isEmpty()) {
+            BulkOperations upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DocumentChunk.class);
+            for (DocumentChunk chunk : chunks) {
+                upserts.upsert(Query.query(where("documentId").is(documentId).and("sequence").is(chunk.getSequence())),
+                        new Update()
+                                .set("pageNumber", chunk.getPageNumber())
+                                .set("startOffset", chunk.getStartOffset())
+                                .set("endOffset", chunk.getEndOffset())
+                                .set("text", chunk.getText())
+                                .set("tokenCount", chunk.getTokenCount())
+                                .set("termFrequencies", chunk.getTermFrequencies()));
+            }
+            upserts.execute();
+        }
+
+        // Chunks past the new end are left over from a longer previous version
+        mongoTemplate.remove(Query.query(where("documentId").is(documentId).and("sequence").gte(chunks.size())), DocumentChunk.class);
+        invalidate(documentId);
+        log.info("Replaced text chunks of document {} with {} chunks", documentId, chunks.size());
+    }
+
+    public DocumentChunk loadChunk(String documentId, int sequence) {
+        return documentChunkRepository.findByDocumentIdAndSequence(documentId, sequence)
+                .orElseThrow(() -> new ResourceNotFoundException("Chunk " + sequence + " not found for document: " + documentId));
+    }
+
+    // Callers must close the stream, it holds an open Mongo cursor
+    public Stream<DocumentChunk> streamChunks(String documentId) {
+        return documentChunkRepository.streamByDocumentIdOrderBySequenceAsc(documentId);
+    }
+
+    // Empty text is never cached, it only means the chunks are not written yet
+    public String getText(String documentId) {
+        String text = documentTextCache.getOrLoad(documentId, id -> {
+            String loaded = loadText(id);
+            return loaded.isEmpty() ? null : loaded;
+        });
+        return text != null ? text : "";
+    }
+
+    public String loadText(String documentId) {
+        try (Stream<DocumentChunk> chunks = streamChunks(documentId)) {
+            StringBuilder text = new StringBuilder();
+            chunks.forEach(chunk -> text.append(chunk.getText()));
+            return text.toString().trim();
+        }
+    }
+
+    // Invalidated after the delete, so a concurrent reader cannot cache the old text or index again
+    public void deleteChunks(String documentId) {
+        documentChunkRepository.deleteByDocumentId(documentId);
+        invalidate(documentId);
+    }
+
+    // The cached text and the retrieval index are both derived from the chunks
+    private void invalidate(String documentId) {
+        documentTextCache.invalidate(documentId);
+        retrievalService.evict(documentId);
+    }
+
+}
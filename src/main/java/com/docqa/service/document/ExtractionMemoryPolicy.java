@@ -0,0 +1,26 @@
+package com.docqa.service.document;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+
+public enum ExtractionMemoryPolicy {
+
+    MAIN_MEMORY_ONLY,
+    TEMP_FILE_ONLY,
+    MIXED;
+
+    // Main memory only fails a document that needs more than the cap, instead of growing the heap without bound
+    public StreamCacheCreateFunction streamCache(long maxMainMemoryBytes) {
+        return switch (this) {
+            case MAIN_MEMORY_ONLY -> MemoryUsageSetting.setupMainMemoryOnly(maxMainMemoryBytes).streamCache;
+            case TEMP_FILE_ONLY -> IOUtils.createTempFileOnlyStreamCache();
+            case MIXED -> MemoryUsageSetting.setupMixed(maxMainMemoryBytes).streamCache;
+        };
+    }
+
+    // Heap one open document can take for its stream cache under this policy
+    public long reservedBytes(long maxMainMemoryBytes) {
+        return this == TEMP_FILE_ONLY ? 0 : maxMainMemoryBytes;
+    }
+}
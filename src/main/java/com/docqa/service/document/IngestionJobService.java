@@ -0,0 +1,138 @@
+package com.docqa.service.document;
+
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.exception.ServiceUnavailableException;
+import com.docqa.model.ChatSession;
+import com.docqa.model.IngestionJob;
+import com.docqa.model.IngestionStage;
+import com.docqa.service.chat.ChatService;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.util.SpooledUpload;
+import io.micrometer.common.util.StringUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.UnaryOperator;
+
+import static com.docqa.mapper.DocumentMapper.toJobResponse;
+
+@Service
+@Slf4j
+public class IngestionJobService {
+
+    private static final String JOB_TOPIC = "/topic/ingestion/";
+
+    private final DocumentService documentService;
+    private final ChatService chatService;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ExecutorService ingestionExecutor;
+    private final Duration jobRetention;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobService(DocumentService documentService,
+                               ChatService chatService,
+                               SimpMessagingTemplate messagingTemplate,
+                               @Qualifier("ingestionExecutor") ExecutorService ingestionExecutor,
+                               @Value("${app.ingestion.jobs.retention}") Duration jobRetention) {
+        this.documentService = documentService;
+        this.chatService = chatService;
+        this.messagingTemplate = messagingTemplate;
+        this.ingestionExecutor = ingestionExecutor;
+        this.jobRetention = jobRetention;
+    }
+
+    public IngestionJob submit(MultipartFile file, String query) {
+        evictFinishedJobs();
+
+        // The multipart body only lives for this request, so spool it before handing off
+        SpooledUpload upload = documentService.spoolUpload(file);
+
+        LocalDateTime now = LocalDateTime.now();
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), upload.fileName(), upload.fileHash(), query,
+                IngestionStage.HASHED, null, null, null, null, now, now);
+        jobs.put(job.id(), job);
+
+        // Both published before the worker can move the job on, so no later stage is followed by a stale one
+        publish(job);
+        IngestionJob queued = update(job.id(), hashed -> hashed.withStage(IngestionStage.QUEUED));
+
+        try {
+            ingestionExecutor.execute(() -> process(job.id(), upload, query));
+        } catch (RejectedExecutionException e) {
+            // Subscribers see the job end before it is forgotten
+            update(job.id(), rejected -> rejected.withStage(IngestionStage.FAILED).withError("Ingestion queue is full"));
+            jobs.remove(job.id());
+            upload.close();
+            throw new ServiceUnavailableException("Ingestion queue is full, please retry later", 5);
+        }
+
+        log.info("Accepted ingestion job {} for document: {}", job.id(), upload.fileName());
+        return queued;
+    }
+
+    public IngestionJob getJob(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Ingestion job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private void process(String jobId, SpooledUpload upload, String query) {
+        try (upload) {
+            // Extract and store the document, deduplicated by file hash
+            String documentId = documentService.storeDocument(upload, () -> update(jobId, job -> job.withStage(IngestionStage.EXTRACTED)));
+            update(jobId, job -> job.withStage(IngestionStage.SAVED).withDocumentId(documentId));
+
+            // Start a new chat session for the uploaded document
+            ChatSession session = chatService.startChatSession(documentId);
+            update(jobId, job -> job.withStage(IngestionStage.SESSION_READY).withSessionId(session.getId()));
+
+            // Answer the initial query if provided, behind any interactive chat waiting for the model
+            String response = chatService.chat(session.getId(), query, ModelPriority.BACKGROUND);
+            if (StringUtils.isNotBlank(query)) {
+                update(jobId, job -> job.withStage(IngestionStage.ANSWERED));
+            }
+
+            update(jobId, job -> job.withStage(IngestionStage.COMPLETED).withResponse(response));
+            log.info("Ingestion job {} completed, session: {}", jobId, session.getId());
+        } catch (Exception e) {
+            log.error("Ingestion job {} failed", jobId, e);
+            update(jobId, job -> job.withStage(IngestionStage.FAILED).withError(e.getMessage()));
+        }
+    }
+
+    private IngestionJob update(String jobId, UnaryOperator<IngestionJob> change) {
+        IngestionJob updated = jobs.computeIfPresent(jobId, (id, job) -> change.apply(job).withUpdatedAt(LocalDateTime.now()));
+        if (updated != null) {
+            publish(updated);
+        }
+        return updated;
+    }
+
+    private void publish(IngestionJob job) {
+        try {
+            messagingTemplate.convertAndSend(JOB_TOPIC + job.id(), toJobResponse(job));
+        } catch (Exception e) {
+            log.warn("Failed to publish progress for ingestion job {}: {}", job.id(), e.getMessage());
+        }
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.stage().isFinished() && job.updatedAt().isBefore(cutoff));
+    }
+
+}
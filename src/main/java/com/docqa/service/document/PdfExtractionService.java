@@ -0,0 +1,134 @@
+package com.docqa.service.document;
+
+import com.docqa.util.MemoryBudget;
+import com.docqa.util.PDFExtractor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+@Service
+@Slf4j
+public class PdfExtractionService {
+
+    private final ForkJoinPool pdfExtractionPool;
+    private final MemoryBudget pdfParseMemoryBudget;
+    private final int parallelPageThreshold;
+    private final int minPagesPerSlice;
+    private final ExtractionMemoryPolicy memoryPolicy;
+    private final long maxMainMemoryPerDocument;
+
+    public PdfExtractionService(@Qualifier("pdfExtractionPool") ForkJoinPool pdfExtractionPool,
+                                MemoryBudget pdfParseMemoryBudget,
+                                @Value("${app.extraction.parallel-page-threshold}") int parallelPageThreshold,
+                                @Value("${app.extraction.min-pages-per-slice}") int minPagesPerSlice,
+                                @Value("${app.extraction.memory.policy}") ExtractionMemoryPolicy memoryPolicy,
+                                @Value("${app.extraction.memory.max-main-memory-per-document}") long maxMainMemoryPerDocument) {
+        this.pdfExtractionPool = pdfExtractionPool;
+        this.pdfParseMemoryBudget = pdfParseMemoryBudget;
+        this.parallelPageThreshold = parallelPageThreshold;
+        this.minPagesPerSlice = minPagesPerSlice;
+        this.memoryPolicy = memoryPolicy;
+        this.maxMainMemoryPerDocument = maxMainMemoryPerDocument;
+    }
+
+    public List<String> extractPages(Path pdfFile) {
+        long startTime = System.currentTimeMillis();
+
+        // Small documents are extracted serially on the same handle used to count pages
+        Probe probe = withinBudget(1, () -> probe(pdfFile));
+        if (probe.pages() != null) {
+            log.info("Extracted {} pages serially in {}ms ({} memory policy)",
+                    probe.pageCount(), System.currentTimeMillis() - startTime, memoryPolicy);
+            return probe.pages();
+        }
+
+        // One slice per worker at most, every slice pays a full load and parse of the document
+        int sliceCount = Math.min(pdfExtractionPool.getParallelism(), Math.ceilDiv(probe.pageCount(), minPagesPerSlice));
+        List<String> pages = extractInSlices(pdfFile, probe.pageCount(), Math.ceilDiv(probe.pageCount(), sliceCount));
+        log.info("Extracted {} pages in {} parallel slices in {}ms ({} memory policy)",
+                probe.pageCount(), sliceCount, System.currentTimeMillis() - startTime, memoryPolicy);
+        return pages;
+    }
+
+    private Probe probe(Path pdfFile) {
+        try (PDDocument document = PDFExtractor.loadPDF(pdfFile, streamCache())) {
+            int pageCount = document.getNumberOfPages();
+            List<String> pages = pageCount < parallelPageThreshold ? PDFExtractor.extractPages(document, 1, pageCount) : null;
+            return new Probe(pageCount, pages);
+        } catch (IOException e) {
+            log.error("Error closing PDF", e);
+            throw new RuntimeException("Failed to extract text from PDF", e);
+        }
+    }
+
+    private List<String> extractInSlices(Path pdfFile, int pageCount, int pagesPerSlice) {
+
+        // Memory for every handle is reserved up front in one go, so pool workers never block on the budget
+        return withinBudget(Math.ceilDiv(pageCount, pagesPerSlice), () -> forkSlices(pdfFile, pageCount, pagesPerSlice));
+    }
+
+    private List<String> forkSlices(Path pdfFile, int pageCount, int pagesPerSlice) {
+
+        // Fan out one stripper per page range, each loading its own document handle once
+        List<CompletableFuture<List<String>>> slices = new ArrayList<>();
+        for (int startPage = 1; startPage <= pageCount; startPage += pagesPerSlice) {
+            int first = startPage;
+            int last = Math.min(pageCount, startPage + pagesPerSlice - 1);
+            slices.add(CompletableFuture.supplyAsync(
+                    () -> PDFExtractor.extractPages(pdfFile, streamCache(), first, last), pdfExtractionPool));
+        }
+
+        // Stitch the slices back together in page order
+        List<String> pages = new ArrayList<>(pageCount);
+        try {
+            for (CompletableFuture<List<String>> slice : slices) {
+                pages.addAll(slice.join());
+            }
+        } catch (CompletionException e) {
+            slices.forEach(slice -> slice.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return pages;
+    }
+
+    // Every open document handle reserves the heap its memory policy can use from the global parse budget
+    private <T> T withinBudget(int handles, Supplier<T> extraction) {
+        long bytes = handles * memoryPolicy.reservedBytes(maxMainMemoryPerDocument);
+        if (bytes == 0) {
+            return extraction.get();
+        }
+
+        if (pdfParseMemoryBudget.queueLength() > 0) {
+            log.info("PDF parse memory budget exhausted, {} extractions queued", pdfParseMemoryBudget.queueLength());
+        }
+        pdfParseMemoryBudget.acquire(bytes);
+        try {
+            return extraction.get();
+        } finally {
+            pdfParseMemoryBudget.release(bytes);
+        }
+    }
+
+    private StreamCacheCreateFunction streamCache() {
+        return memoryPolicy.streamCache(maxMainMemoryPerDocument);
+    }
+
+    private record Probe(int pageCount, List<String> pages) {
+    }
+
+}
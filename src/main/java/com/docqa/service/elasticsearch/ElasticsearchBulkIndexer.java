@@ -0,0 +1,286 @@
+package com.docqa.service.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import com.docqa.model.elasticsearch.ChatSessionDocument;
+import com.docqa.util.ThreadFactories;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Write-behind indexer: callers only enqueue, a single flusher thread sends coalesced _bulk requests
+@Slf4j
+public class ElasticsearchBulkIndexer implements AutoCloseable {
+
+    // Documents that could not be indexed are logged here with enough detail to replay them
+    private static final Logger deadLetters = LoggerFactory.getLogger("com.docqa.elasticsearch.deadletter");
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final Supplier<List<String>> writeTargets;
+    private final int batchSize;
+    private final int maxPending;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    // Latest pending document per session id, in first-enqueued order
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Pending> pending = new LinkedHashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    // Write targets of the last live flush, for dead-letter entries written without resolving the targets again
+    private volatile List<String> lastTargets = List.of();
+
+    private final DistributionSummary batchSizes;
+    private final Counter coalesced;
+    private final Counter retries;
+    private final Counter deadLettered;
+
+    public ElasticsearchBulkIndexer(ElasticsearchClient elasticsearchClient,
+                                    MeterRegistry meterRegistry,
+                                    Supplier<List<String>> writeTargets,
+                                    int batchSize,
+                                    int maxPending,
+                                    Duration flushInterval,
+                                    int maxRetries,
+                                    Duration initialBackoff) {
+        this.elasticsearchClient = elasticsearchClient;
+        this.writeTargets = writeTargets;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+
+        this.batchSizes = DistributionSummary.builder("es.indexer.batch.size").register(meterRegistry);
+        this.coalesced = Counter.builder("es.indexer.coalesced").register(meterRegistry);
+        this.retries = Counter.builder("es.indexer.retries").register(meterRegistry);
+        this.deadLettered = Counter.builder("es.indexer.dead.letters").register(meterRegistry);
+        Gauge.builder("es.indexer.pending", this, ElasticsearchBulkIndexer::pendingCount).register(meterRegistry);
+        Gauge.builder("es.indexer.lag.ms", this, ElasticsearchBulkIndexer::lagMillis).register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(ThreadFactories.named("es-indexer-", false));
+        flusher.scheduleWithFixedDelay(this::flushAll, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void enqueue(ChatSessionDocument document) {
+        boolean full;
+        lock.lock();
+        try {
+            Pending existing = pending.get(document.getId());
+            if (existing != null) {
+                // A busy session is indexed once per flush with its newest state
+                coalesced.increment();
+                if (existing.document().getMessageCount() <= document.getMessageCount()) {
+                    pending.put(document.getId(), new Pending(document, existing.enqueuedAt()));
+                }
+                return;
+            }
+            if (pending.size() >= maxPending) {
+                deadLetter(document, lastTargets, "indexer queue full");
+                return;
+            }
+            pending.put(document.getId(), new Pending(document, System.currentTimeMillis()));
+            full = pending.size() >= batchSize;
+        } finally {
+            lock.unlock();
+        }
+
+        // A full batch does not wait for the next tick
+        if (full) {
+            try {
+                flusher.execute(this::flushAll);
+            } catch (RejectedExecutionException e) {
+                log.debug("Indexer is shutting down, the final flush picks up session {}", document.getId());
+            }
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Age of the oldest document not yet indexed
+    public long lagMillis() {
+        lock.lock();
+        try {
+            return pending.isEmpty() ? 0 : System.currentTimeMillis() - pending.values().iterator().next().enqueuedAt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Last flush on the closing thread so queued updates are not lost on shutdown
+        flushAll();
+    }
+
+    private void flushAll() {
+        try {
+            List<ChatSessionDocument> batch;
+            while (!(batch = drain()).isEmpty()) {
+                send(batch);
+            }
+        } catch (Exception e) {
+            // Never let an exception cancel the scheduled flush
+            log.error("Unexpected error flushing Elasticsearch index queue", e);
+        }
+    }
+
+    private List<ChatSessionDocument> drain() {
+        lock.lock();
+        try {
+            List<ChatSessionDocument> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Pending> iterator = pending.values().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next().document());
+                iterator.remove();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Synchronous write to explicit targets, returns the documents that went to the dead-letter log
+    public List<ChatSessionDocument> indexBatch(List<ChatSessionDocument> batch, List<String> targets) {
+        return send(batch, () -> targets);
+    }
+
+    private List<ChatSessionDocument> send(List<ChatSessionDocument> batch) {
+        return send(batch, writeTargets);
+    }
+
+    private List<ChatSessionDocument> send(List<ChatSessionDocument> batch, Supplier<List<String>> targets) {
+        batchSizes.record(batch.size());
+        List<ChatSessionDocument> failed = new ArrayList<>();
+        List<ChatSessionDocument> remaining = batch;
+        List<String> sentTo = List.of();
+        long backoff = initialBackoff.toMillis();
+
+        for (int attempt = 0; attempt <= maxRetries && !remaining.isEmpty(); attempt++) {
+            if (attempt > 0) {
+                retries.increment();
+                log.warn("Retrying {} Elasticsearch documents in {}ms (attempt {} of {})", remaining.size(), backoff, attempt, maxRetries);
+                if (!sleep(backoff)) {
+                    break;
+                }
+                backoff *= 2;
+            }
+
+            try {
+                // Targets are read per attempt, so a retry after an alias swap goes to the new index.
+                // Resolving them fails while the index is not prepared, and the attempt is retried like a failed request
+                sentTo = targets.get();
+                if (targets == writeTargets) {
+                    lastTargets = sentTo;
+                }
+                remaining = bulkIndex(remaining, sentTo, failed);
+            } catch (Exception e) {
+                // Whole request failed (connection, timeout), every document is retried
+                log.warn("Bulk index request of {} documents failed: {}", remaining.size(), e.getMessage());
+            }
+        }
+
+        for (ChatSessionDocument document : remaining) {
+            deadLetter(document, sentTo, "retries exhausted");
+            failed.add(document);
+        }
+        return failed;
+    }
+
+    // Returns the documents worth retrying, non-retryable failures go to the dead-letter log and to failed
+    private List<ChatSessionDocument> bulkIndex(List<ChatSessionDocument> documents, List<String> targets,
+                                                List<ChatSessionDocument> failed) throws Exception {
+        BulkRequest.Builder request = new BulkRequest.Builder();
+        for (ChatSessionDocument document : documents) {
+            for (String target : targets) {
+                // Versioned by message count: a copy with as many messages replaces the indexed one, an older copy,
+                // from a backfill snapshot or a delayed flush, is refused
+                request.operations(op -> op.index(idx -> idx.index(target).id(document.getId()).document(document)
+                        .version((long) document.getMessageCount()).versionType(VersionType.ExternalGte)));
+            }
+        }
+
+        BulkResponse response = elasticsearchClient.bulk(request.build());
+        if (!response.errors()) {
+            log.debug("Indexed {} sessions in Elasticsearch in {}ms", documents.size(), response.took());
+            return List.of();
+        }
+
+        // Items come back in request order, one per document and target; a retry rewrites the document to every target
+        List<ChatSessionDocument> retry = new ArrayList<>();
+        List<BulkResponseItem> items = response.items();
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            ChatSessionDocument document = documents.get(i / targets.size());
+            // A version conflict means a newer copy is already indexed
+            if (item.error() == null || item.status() == 409) {
+                continue;
+            }
+            if (item.status() == 429 || item.status() >= 500) {
+                if (retry.isEmpty() || retry.getLast() != document) {
+                    retry.add(document);
+                }
+            } else {
+                deadLetter(document, List.of(item.index()), item.status() + " " + item.error().reason());
+                if (failed.isEmpty() || failed.getLast() != document) {
+                    failed.add(document);
+                }
+            }
+        }
+        return retry;
+    }
+
+    private void deadLetter(ChatSessionDocument document, List<String> targets, String reason) {
+        deadLettered.increment();
+        deadLetters.error("Session {} not indexed into {}: {} (messageCount={}, lastInteractionAt={})",
+                document.getId(), targets, reason, document.getMessageCount(), document.getLastInteractionAt());
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private record Pending(ChatSessionDocument document, long enqueuedAt) {
+    }
+}
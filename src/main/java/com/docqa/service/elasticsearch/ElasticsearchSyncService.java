@@ -1,15 +1,17 @@
 package com.docqa.service.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.docqa.config.LoadElasticsearchIndex;
 import com.docqa.model.ChatSession;
 import com.docqa.model.elasticsearch.ChatSessionDocument;
-import com.docqa.repository.ChatSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 
 @Service
@@ -17,64 +19,45 @@ import java.util.List;
 @ConditionalOnBean(name = "elasticsearchClient")
 public class ElasticsearchSyncService {
 
-    private final ChatSessionRepository mongoRepository;
-    private final ElasticsearchClient elasticsearchClient;
-
-    @Value("${elasticsearch.index.sessions}")
-    private String sessionsIndex;
-
-    public ElasticsearchSyncService(ChatSessionRepository mongoRepository,
-                                    ElasticsearchClient elasticsearchClient) {
-        this.mongoRepository = mongoRepository;
-        this.elasticsearchClient = elasticsearchClient;
+    private final ElasticsearchBulkIndexer bulkIndexer;
+
+    public ElasticsearchSyncService(ElasticsearchClient elasticsearchClient,
+                                    MeterRegistry meterRegistry,
+                                    LoadElasticsearchIndex loadElasticsearchIndex,
+                                    @Value("${elasticsearch.indexer.batch-size}") int batchSize,
+                                    @Value("${elasticsearch.indexer.max-pending}") int maxPending,
+                                    @Value("${elasticsearch.indexer.flush-interval}") Duration flushInterval,
+                                    @Value("${elasticsearch.indexer.max-retries}") int maxRetries,
+                                    @Value("${elasticsearch.indexer.initial-backoff}") Duration initialBackoff) {
+        // Live writes follow the write alias, and also land in the new index while a migration is running
+        this.bulkIndexer = new ElasticsearchBulkIndexer(elasticsearchClient, meterRegistry, loadElasticsearchIndex::getWriteTargets,
+                batchSize, maxPending, flushInterval, maxRetries, initialBackoff);
     }
 
-    @Async
     public void syncSession(ChatSession session) {
-        try {
-            ChatSessionDocument document = toDocument(session);
-
-            log.info("Syncing session to Elasticsearch - ID: {}, DocumentName: {}, MessageCount: {}",
-                    document.getId(), document.getDocumentName(), document.getMessageCount());
-
-            // Save/index single document using Elasticsearch Java Client
-            elasticsearchClient.index(i -> i
-                .index(sessionsIndex)
-                .id(document.getId())
-                .document(document)
-            );
 
-            log.info("Successfully synced session {} to Elasticsearch", session.getId());
-        } catch (Exception e) {
-            log.error("Error syncing session {} to Elasticsearch: {}", session.getId(), e.getMessage(), e);
-        }
+        // Queued for the next bulk flush, the chat request never waits on Elasticsearch
+        ChatSessionDocument document = toDocument(session);
+        log.debug("Queued session {} for Elasticsearch, messageCount: {}", document.getId(), document.getMessageCount());
+        bulkIndexer.enqueue(document);
     }
 
-    public void syncAllSessions() {
-        try {
-            log.info("Starting full Elasticsearch sync");
-            List<ChatSession> allSessions = mongoRepository.findAll();
-
-            List<ChatSessionDocument> documents = allSessions.stream()
-                    .map(this::toDocument)
-                    .toList();
+    @PreDestroy
+    public void flushPending() {
+        bulkIndexer.close();
+    }
 
-            // Bulk save using Elasticsearch Java Client
-            elasticsearchClient.bulk(b -> {
-                for (ChatSessionDocument doc : documents) {
-                    b.operations(op -> op.index(idx -> idx
-                        .index(sessionsIndex)
-                        .id(doc.getId())
-                        .document(doc)
-                    ));
-                }
-                return b;
-            });
+    // Synchronous bulk write with the indexer's retries, used by the full reindex. Missing and stale sessions are
+    // written, one a live write already indexed with more messages is kept. Returns how many were dead-lettered
+    public int indexBatch(List<ChatSession> sessions, String target) {
+        return bulkIndexer.indexBatch(sessions.stream().map(this::toDocument).toList(), List.of(target)).size();
+    }
 
-            log.info("Synced {} sessions to Elasticsearch", documents.size());
-        } catch (Exception e) {
-            log.error("Error during full sync", e);
+    private static int messageCount(ChatSession session) {
+        if (session.getMessageCount() != null) {
+            return session.getMessageCount();
         }
+        return session.getMessages() != null ? session.getMessages().size() : 0;
     }
 
     private ChatSessionDocument toDocument(ChatSession session) {
@@ -84,7 +67,7 @@ public class ElasticsearchSyncService {
                 .documentId(session.getDocumentId())
                 .createdAt(session.getCreatedAt())
                 .lastInteractionAt(session.getUpdatedAt())
-                .messageCount(session.getMessages() != null ? session.getMessages().size() : 0)
+                .messageCount(messageCount(session))
                 .lastMessage(session.getMessages() != null && !session.getMessages().isEmpty() ?
                         session.getMessages().getLast().getContent() : "")
                 .build();
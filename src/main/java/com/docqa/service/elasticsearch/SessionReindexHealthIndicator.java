@@ -0,0 +1,29 @@
+package com.docqa.service.elasticsearch;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// Reports reindex progress under /actuator/health, search results are partial until it completes
+@Component("sessionReindex")
+public class SessionReindexHealthIndicator implements HealthIndicator {
+
+    private final SessionReindexService sessionReindexService;
+
+    public SessionReindexHealthIndicator(SessionReindexService sessionReindexService) {
+        this.sessionReindexService = sessionReindexService;
+    }
+
+    @Override
+    public Health health() {
+        SessionReindexService.Progress progress = sessionReindexService.getProgress();
+        Health.Builder health = progress.state() == SessionReindexService.State.FAILED ? Health.unknown() : Health.up();
+        health.withDetail("state", progress.state())
+                .withDetail("processed", progress.processed())
+                .withDetail("total", progress.total());
+        if (progress.error() != null) {
+            health.withDetail("error", progress.error());
+        }
+        return health.build();
+    }
+}
@@ -0,0 +1,179 @@
+package com.docqa.service.elasticsearch;
+
+import com.docqa.config.LoadElasticsearchIndex;
+import com.docqa.model.ChatSession;
+import com.docqa.model.ReindexCheckpoint;
+import com.docqa.repository.ReindexCheckpointRepository;
+import com.docqa.util.ThreadFactories;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Slf4j
+public class SessionReindexService {
+
+    public enum State {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        DISABLED
+    }
+
+    public record Progress(State state, long processed, long total, String lastSessionId, String error) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final ElasticsearchSyncService elasticsearchSyncService;
+    private final LoadElasticsearchIndex loadElasticsearchIndex;
+    private final ReindexCheckpointRepository checkpointRepository;
+    private final boolean onStartup;
+    private final int pageSize;
+    private final int batchSize;
+    private final int parallelism;
+    private final boolean virtualThreads;
+
+    private volatile Progress progress;
+
+    public SessionReindexService(MongoTemplate mongoTemplate,
+                                 ElasticsearchSyncService elasticsearchSyncService,
+                                 LoadElasticsearchIndex loadElasticsearchIndex,
+                                 ReindexCheckpointRepository checkpointRepository,
+                                 @Value("${elasticsearch.reindex.on-startup}") boolean onStartup,
+                                 @Value("${elasticsearch.reindex.page-size}") int pageSize,
+                                 @Value("${elasticsearch.reindex.batch-size}") int batchSize,
+                                 @Value("${elasticsearch.reindex.parallelism}") int parallelism,
+                                 @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.mongoTemplate = mongoTemplate;
+        this.elasticsearchSyncService = elasticsearchSyncService;
+        this.loadElasticsearchIndex = loadElasticsearchIndex;
+        this.checkpointRepository = checkpointRepository;
+        this.onStartup = onStartup;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+        boolean scheduled = onStartup || loadElasticsearchIndex.isMigrating();
+        this.progress = new Progress(scheduled ? State.PENDING : State.DISABLED, 0, 0, null, null);
+    }
+
+    public Progress getProgress() {
+        return progress;
+    }
+
+    // Runs after startup on the task executor, the application serves traffic while the index catches up
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexOnStartup() {
+        // A failed index preparation at startup is retried here, a pending migration is only known once it succeeds
+        try {
+            loadElasticsearchIndex.ensurePrepared();
+        } catch (RuntimeException e) {
+            progress = new Progress(State.FAILED, 0, 0, null, e.getMessage());
+            log.error("Sessions index could not be prepared, reindex skipped until the next start", e);
+            return;
+        }
+
+        // A new index version is always backfilled, whatever on-startup says, or the alias swap never happens
+        if (onStartup || loadElasticsearchIndex.isMigrating()) {
+            reindex();
+        }
+    }
+
+    public void reindex() {
+        loadElasticsearchIndex.ensurePrepared();
+
+        // While migrating, the backfill goes straight to the new index. Either way the external version refuses
+        // a snapshot older than what live writes already put there
+        boolean migrating = loadElasticsearchIndex.isMigrating();
+        String index = loadElasticsearchIndex.getVersionedIndex();
+        String target = migrating ? index : loadElasticsearchIndex.getWriteAlias();
+        long startTime = System.currentTimeMillis();
+
+        // Step 1: Resume from the checkpoint. After a finished run only sessions created since are read,
+        // later changes to older ones reach the index through live writes
+        ReindexCheckpoint checkpoint = checkpointRepository.findById(index)
+                .orElseGet(() -> ReindexCheckpoint.builder().id(index).processed(0).startedAt(LocalDateTime.now()).build());
+        if (checkpoint.getLastSessionId() != null) {
+            log.info("Resuming reindex of {} after session {} ({} already processed)", index,
+                    checkpoint.getLastSessionId(), checkpoint.getProcessed());
+        }
+
+        long total = mongoTemplate.estimatedCount(ChatSession.class);
+        progress = new Progress(State.RUNNING, checkpoint.getProcessed(), total, checkpoint.getLastSessionId(), null);
+
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, ThreadFactories.named("es-reindex-", virtualThreads));
+        try {
+            // Step 2: Page through sessions by id with only the fields the search document needs
+            List<ChatSession> page;
+            while (!(page = nextPage(checkpoint.getLastSessionId())).isEmpty()) {
+
+                // Step 3: Fixed-size bulk batches in parallel, the checkpoint moves once the whole page is indexed
+                List<CompletableFuture<Integer>> batches = new ArrayList<>();
+                for (int from = 0; from < page.size(); from += batchSize) {
+                    List<ChatSession> batch = page.subList(from, Math.min(from + batchSize, page.size()));
+                    batches.add(CompletableFuture.supplyAsync(() -> elasticsearchSyncService.indexBatch(batch, target), workers));
+                }
+                int failed = batches.stream().mapToInt(CompletableFuture::join).sum();
+
+                // A page with dead-lettered sessions stops the run before the checkpoint, the next start retries it
+                if (failed > 0) {
+                    throw new IllegalStateException(failed + " of " + page.size() + " sessions after "
+                            + checkpoint.getLastSessionId() + " could not be indexed, see the dead-letter log");
+                }
+
+                checkpoint.setLastSessionId(page.getLast().getId());
+                checkpoint.setProcessed(checkpoint.getProcessed() + page.size());
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+                progress = new Progress(State.RUNNING, checkpoint.getProcessed(), total, checkpoint.getLastSessionId(), null);
+            }
+
+            // Step 4: Point both aliases at the backfilled index in one atomic swap. Sessions created after the count
+            // are dual-written, so the new index holds at least this many unless some were dead-lettered
+            if (migrating) {
+                loadElasticsearchIndex.completeMigration(mongoTemplate.count(new Query(), ChatSession.class));
+            }
+
+            checkpoint.setCompletedAt(LocalDateTime.now());
+            checkpointRepository.save(checkpoint);
+            progress = new Progress(State.COMPLETED, checkpoint.getProcessed(), total, checkpoint.getLastSessionId(), null);
+            log.info("Reindexed {} sessions into {} in {}ms", checkpoint.getProcessed(), index, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            progress = new Progress(State.FAILED, checkpoint.getProcessed(), total, checkpoint.getLastSessionId(), e.getMessage());
+            log.error("Reindex of {} failed after {} sessions, the next start resumes from the checkpoint", index, checkpoint.getProcessed(), e);
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private List<ChatSession> nextPage(String afterSessionId) {
+        Query query = new Query();
+        if (afterSessionId != null) {
+            query.addCriteria(where("_id").gt(afterSessionId));
+        }
+        query.with(Sort.by(Sort.Direction.ASC, "_id")).limit(pageSize);
+
+        // Only the last message is needed, for the lastMessage field
+        query.fields()
+                .include("documentId", "documentName", "messageCount", "createdAt", "updatedAt")
+                .slice("messages", -1);
+        return mongoTemplate.find(query, ChatSession.class);
+    }
+}
@@ -0,0 +1,160 @@
+package com.docqa.service.llm;
+
+import com.docqa.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@Slf4j
+public class ModelGateway {
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Duration queueDeadline;
+    private final long retryAfterSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::arrival));
+    private int active;
+    private long arrivals;
+
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public ModelGateway(MeterRegistry meterRegistry,
+                        @Value("${app.llm.gateway.max-concurrent}") int maxConcurrent,
+                        @Value("${app.llm.gateway.max-queued}") int maxQueued,
+                        @Value("${app.llm.gateway.queue-deadline}") Duration queueDeadline,
+                        @Value("${app.llm.gateway.retry-after}") Duration retryAfter) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueDeadline = queueDeadline;
+        this.retryAfterSeconds = Math.max(1, retryAfter.toSeconds());
+
+        this.waitTimer = Timer.builder("model.gateway.wait").register(meterRegistry);
+        this.rejected = Counter.builder("model.gateway.rejected").register(meterRegistry);
+        Gauge.builder("model.gateway.queue.depth", this, ModelGateway::queueDepth).register(meterRegistry);
+        Gauge.builder("model.gateway.active", this, ModelGateway::activeRequests).register(meterRegistry);
+    }
+
+    public void acquire(ModelPriority priority) {
+        long startTime = System.nanoTime();
+        lock.lock();
+        try {
+            // Fast path: free capacity and nobody ahead of us
+            if (active < maxConcurrent && waiters.isEmpty()) {
+                active++;
+                return;
+            }
+
+            // A full queue fails fast instead of parking another request thread
+            if (waiters.size() >= maxQueued) {
+                rejected.increment();
+                throw new ServiceUnavailableException("Model is at capacity, please retry later", retryAfterSeconds);
+            }
+
+            Waiter waiter = new Waiter(priority, arrivals++, lock.newCondition());
+            waiters.add(waiter);
+            long remaining = queueDeadline.toNanos();
+            try {
+                while (!waiter.granted && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!waiter.granted) {
+                waiters.remove(waiter);
+                rejected.increment();
+                throw new ServiceUnavailableException("Timed out waiting for model capacity", retryAfterSeconds);
+            }
+        } finally {
+            lock.unlock();
+            waitTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Takes a free slot without queueing, for work that is only worth doing while the model is idle
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (active < maxConcurrent && waiters.isEmpty()) {
+                active++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release() {
+        lock.lock();
+        try {
+            // Hand the slot straight to the highest priority waiter, otherwise free it
+            Waiter next = waiters.poll();
+            if (next != null) {
+                next.granted = true;
+                next.condition.signal();
+            } else {
+                active--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int activeRequests() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final ModelPriority priority;
+        private final long arrival;
+        private final Condition condition;
+        private boolean granted;
+
+        private Waiter(ModelPriority priority, long arrival, Condition condition) {
+            this.priority = priority;
+            this.arrival = arrival;
+            this.condition = condition;
+        }
+
+        ModelPriority priority() {
+            return priority;
+        }
+
+        long arrival() {
+            return arrival;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.docqa.service.llm;
+
+public enum ModelPriority {
+
+    INTERACTIVE,    // A user is waiting on the answer
+    BACKGROUND      // Ingestion-time and precomputed work, served only when no interactive request waits
+}
@@ -0,0 +1,153 @@
+package com.docqa.service.llm;
+
+import com.docqa.exception.ServiceUnavailableException;
+import com.docqa.util.TokenEstimator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+@Service
+@Slf4j
+public class ModelRouter {
+
+    // Questions asking for reasoning over the document stay on the large model
+    private static final Pattern ANALYTIC = Pattern.compile(
+            "\\b(why|explain|compare|comparison|contrast|analy[sz]e|analysis|evaluate|assess|summari[sz]e|summary"
+                    + "|implications?|differences?|pros and cons|advantages|disadvantages|recommend|critique|justify)\\b");
+
+    // Yes/no and lookup style questions the small model answers well from the excerpts
+    private static final Pattern LOOKUP = Pattern.compile(
+            "^(is|are|was|were|does|do|did|can|has|have|had|will|who|when|where|which|what is|what are|what was"
+                    + "|how many|how much|list|name)\\b");
+
+    // Questions a correct answer to starts with yes or no, however short it is
+    private static final Pattern YES_NO_QUESTION = Pattern.compile("^(is|are|was|were|does|do|did|can|has|have|had|will)\\b");
+    private static final Pattern YES_NO_ANSWER = Pattern.compile("^(yes|no)\\b");
+
+    // Answers that suggest the small model could not find or work out the answer
+    private static final Pattern LOW_CONFIDENCE = Pattern.compile(
+            "\\b(i don'?t know|i do not know|i'?m not sure|i am not sure|not (mentioned|specified|stated|provided)"
+                    + "|does not (mention|specify|contain|say)|doesn'?t (mention|specify|contain|say)"
+                    + "|cannot (determine|find|answer)|can'?t (determine|find|answer)|unable to)\\b");
+
+    private final OllamaService ollamaService;
+    private final TokenEstimator tokenEstimator;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int smallMaxQuestionWords;
+    private final int smallMaxPromptTokens;
+    private final int minConfidentAnswerChars;
+
+    public ModelRouter(OllamaService ollamaService,
+                       TokenEstimator tokenEstimator,
+                       MeterRegistry meterRegistry,
+                       @Value("${app.llm.routing.enabled}") boolean enabled,
+                       @Value("${app.llm.routing.small-max-question-words}") int smallMaxQuestionWords,
+                       @Value("${app.llm.routing.small-max-prompt-tokens}") int smallMaxPromptTokens,
+                       @Value("${app.llm.routing.min-confident-answer-chars}") int minConfidentAnswerChars) {
+        this.ollamaService = ollamaService;
+        this.tokenEstimator = tokenEstimator;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.smallMaxQuestionWords = smallMaxQuestionWords;
+        this.smallMaxPromptTokens = smallMaxPromptTokens;
+        this.minConfidentAnswerChars = minConfidentAnswerChars;
+    }
+
+    public ModelTier classify(String question, String prompt) {
+        if (!enabled) {
+            return ModelTier.LARGE;
+        }
+        String normalized = question.trim().toLowerCase(Locale.ROOT);
+        if (normalized.split("\\s+").length > smallMaxQuestionWords || ANALYTIC.matcher(normalized).find()) {
+            return ModelTier.LARGE;
+        }
+        // A prompt carrying a lot of document context needs the large model to make use of it
+        if (tokenEstimator.estimate(prompt) > smallMaxPromptTokens) {
+            return ModelTier.LARGE;
+        }
+        return LOOKUP.matcher(normalized).find() ? ModelTier.SMALL : ModelTier.LARGE;
+    }
+
+    public String generate(String question, String prompt, ModelPriority priority, String affinityKey) {
+        ModelTier tier = classify(question, prompt);
+        if (tier == ModelTier.SMALL) {
+            try {
+                String answer = timed(ModelTier.SMALL, () -> ollamaService.generateText(prompt, priority, affinityKey, ModelTier.SMALL));
+                if (isConfident(question, answer)) {
+                    count(ModelTier.SMALL, "answered");
+                    return answer;
+                }
+                count(ModelTier.SMALL, "fallback");
+                log.info("Low-confidence answer from the small model, falling back to the large one");
+            } catch (ServiceUnavailableException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // e.g. the small model was never pulled, the large one still answers
+                count(ModelTier.SMALL, "error");
+                log.warn("Small model failed, falling back to the large one: {}", e.getMessage());
+            }
+        }
+        String answer = timed(ModelTier.LARGE, () -> ollamaService.generateText(prompt, priority, affinityKey, ModelTier.LARGE));
+        count(ModelTier.LARGE, "answered");
+        return answer;
+    }
+
+    public Flux<String> stream(String question, String prompt, String affinityKey) {
+        if (classify(question, prompt) == ModelTier.LARGE) {
+            count(ModelTier.LARGE, "answered");
+            return ollamaService.streamText(prompt, affinityKey, ModelTier.LARGE);
+        }
+
+        // Small answers come back quickly, so they are checked whole before anything reaches the client
+        return Mono.fromCallable(() -> timed(ModelTier.SMALL,
+                        () -> ollamaService.generateText(prompt, ModelPriority.INTERACTIVE, affinityKey, ModelTier.SMALL)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(answer -> {
+                    if (isConfident(question, answer)) {
+                        count(ModelTier.SMALL, "answered");
+                        return Flux.just(answer);
+                    }
+                    count(ModelTier.SMALL, "fallback");
+                    count(ModelTier.LARGE, "answered");
+                    log.info("Low-confidence answer from the small model, streaming from the large one instead");
+                    return ollamaService.streamText(prompt, affinityKey, ModelTier.LARGE);
+                })
+                .onErrorResume(e -> !(e instanceof ServiceUnavailableException), e -> {
+                    count(ModelTier.SMALL, "error");
+                    count(ModelTier.LARGE, "answered");
+                    log.warn("Small model failed, streaming from the large one instead: {}", e.getMessage());
+                    return ollamaService.streamText(prompt, affinityKey, ModelTier.LARGE);
+                });
+    }
+
+    private boolean isConfident(String question, String answer) {
+        if (answer == null || LOW_CONFIDENCE.matcher(answer.toLowerCase(Locale.ROOT)).find()) {
+            return false;
+        }
+
+        // A yes/no question is answered by its first word, length says nothing there
+        String trimmed = answer.trim().toLowerCase(Locale.ROOT);
+        if (YES_NO_QUESTION.matcher(question.trim().toLowerCase(Locale.ROOT)).find()) {
+            return YES_NO_ANSWER.matcher(trimmed).find();
+        }
+        return trimmed.length() >= minConfidentAnswerChars;
+    }
+
+    private String timed(ModelTier tier, Supplier<String> call) {
+        return Timer.builder("model.router.latency").tag("tier", tier.name()).register(meterRegistry).record(call);
+    }
+
+    private void count(ModelTier tier, String outcome) {
+        meterRegistry.counter("model.router.requests", "tier", tier.name(), "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,6 @@
+package com.docqa.service.llm;
+
+public enum ModelTier {
+    SMALL,
+    LARGE
+}
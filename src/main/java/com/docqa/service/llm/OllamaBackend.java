@@ -0,0 +1,51 @@
+package com.docqa.service.llm;
+
+import lombok.Getter;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Getter
+public class OllamaBackend {
+
+    private final String baseUrl;
+    private final OllamaApi api;
+    private final OllamaChatModel chatModel;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+
+    public OllamaBackend(String baseUrl, OllamaApi api, OllamaChatModel chatModel) {
+        this.baseUrl = baseUrl;
+        this.api = api;
+        this.chatModel = chatModel;
+    }
+
+    public int outstandingRequests() {
+        return outstanding.get();
+    }
+
+    void begin() {
+        outstanding.incrementAndGet();
+    }
+
+    void end() {
+        outstanding.decrementAndGet();
+    }
+
+    void markHealthy() {
+        consecutiveFailures.set(0);
+        healthy = true;
+    }
+
+    // Returns true when this failure is the one that ejects the backend
+    boolean recordFailure(int ejectAfterFailures) {
+        boolean wasHealthy = healthy;
+        if (consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+            healthy = false;
+        }
+        return wasHealthy && !healthy;
+    }
+}
@@ -0,0 +1,129 @@
+package com.docqa.service.llm;
+
+import com.docqa.config.OllamaBackendProperties;
+import com.docqa.exception.ServiceUnavailableException;
+import com.docqa.util.BoundedCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Component
+@Slf4j
+public class OllamaBackendPool {
+
+    private final List<OllamaBackend> backends;
+    private final int ejectAfterFailures;
+    private final int affinitySlack;
+
+    // Session id -> base URL of the backend that served it last, to keep its prompt cache warm
+    private final BoundedCache<String, String> sessionAffinity;
+
+    public OllamaBackendPool(OllamaChatModel defaultChatModel,
+                             ObjectProvider<RestClient.Builder> restClientBuilder,
+                             ObjectProvider<WebClient.Builder> webClientBuilder,
+                             MeterRegistry meterRegistry,
+                             OllamaBackendProperties backendProperties,
+                             @Value("${spring.ai.ollama.base-url}") String defaultBaseUrl,
+                             @Value("${app.llm.pool.eject-after-failures}") int ejectAfterFailures,
+                             @Value("${app.llm.pool.affinity-slack}") int affinitySlack,
+                             @Value("${app.llm.pool.max-affinity-entries}") int maxAffinityEntries) {
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.affinitySlack = affinitySlack;
+        this.sessionAffinity = new BoundedCache<>(maxAffinityEntries, url -> 1);
+
+        // Every backend runs the same model with the same options as the auto-configured client
+        OllamaChatOptions options = OllamaChatOptions.fromOptions((OllamaChatOptions) defaultChatModel.getDefaultOptions());
+        // No client-side retries, a failed call fails over to another backend instead of backing off on this one
+        RetryTemplate noRetry = RetryTemplate.builder().maxAttempts(1).build();
+        List<String> urls = backendProperties.backends().isEmpty() ? List.of(defaultBaseUrl) : backendProperties.backends();
+        this.backends = urls.stream().map(url -> {
+            OllamaApi api = OllamaApi.builder()
+                    .baseUrl(url)
+                    .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder).clone())
+                    .webClientBuilder(webClientBuilder.getIfAvailable(WebClient::builder).clone())
+                    .build();
+            OllamaChatModel chatModel = OllamaChatModel.builder().ollamaApi(api).defaultOptions(options).retryTemplate(noRetry).build();
+            return new OllamaBackend(url, api, chatModel);
+        }).toList();
+
+        for (OllamaBackend backend : backends) {
+            Gauge.builder("ollama.backend.outstanding", backend, OllamaBackend::outstandingRequests)
+                    .tag("backend", backend.getBaseUrl()).register(meterRegistry);
+            Gauge.builder("ollama.backend.healthy", backend, b -> b.isHealthy() ? 1 : 0)
+                    .tag("backend", backend.getBaseUrl()).register(meterRegistry);
+        }
+        log.info("Ollama backend pool configured with {}", urls);
+    }
+
+    public OllamaBackend select(String affinityKey) {
+        List<OllamaBackend> healthy = backends.stream().filter(OllamaBackend::isHealthy).toList();
+        if (healthy.isEmpty()) {
+            throw new ServiceUnavailableException("No healthy Ollama backend available", 30);
+        }
+
+        // Least outstanding requests wins
+        OllamaBackend leastLoaded = healthy.stream().min(Comparator.comparingInt(OllamaBackend::outstandingRequests)).orElseThrow();
+
+        // Unless the session's previous backend is healthy and not much busier
+        if (affinityKey != null) {
+            String previousUrl = sessionAffinity.get(affinityKey);
+            for (OllamaBackend backend : healthy) {
+                if (backend.getBaseUrl().equals(previousUrl)
+                        && backend.outstandingRequests() <= leastLoaded.outstandingRequests() + affinitySlack) {
+                    return backend;
+                }
+            }
+        }
+        return leastLoaded;
+    }
+
+    public OllamaBackend selectOther(OllamaBackend failed) {
+        return backends.stream()
+                .filter(backend -> backend != failed && backend.isHealthy())
+                .min(Comparator.comparingInt(OllamaBackend::outstandingRequests))
+                .orElse(null);
+    }
+
+    public void recordSuccess(OllamaBackend backend, String affinityKey) {
+        backend.markHealthy();
+        if (affinityKey != null) {
+            sessionAffinity.put(affinityKey, backend.getBaseUrl());
+        }
+    }
+
+    public void recordFailure(OllamaBackend backend) {
+        if (backend.recordFailure(ejectAfterFailures)) {
+            log.warn("Ejecting Ollama backend {} after {} consecutive failures", backend.getBaseUrl(), ejectAfterFailures);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.llm.pool.health-check-interval}")
+    public void checkHealth() {
+        for (OllamaBackend backend : backends) {
+            try {
+                backend.getApi().listModels();
+                if (!backend.isHealthy()) {
+                    log.info("Ollama backend {} is healthy again, returning it to the pool", backend.getBaseUrl());
+                }
+                backend.markHealthy();
+            } catch (Exception e) {
+                log.debug("Health check failed for Ollama backend {}: {}", backend.getBaseUrl(), e.getMessage());
+                recordFailure(backend);
+            }
+        }
+    }
+
+}
@@ -1,25 +1,152 @@
 package com.docqa.service.llm;
 
-import lombok.RequiredArgsConstructor;
+import com.docqa.exception.ServiceUnavailableException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class OllamaService {
 
-    private final OllamaChatModel ollama;
+    private final OllamaBackendPool backendPool;
+    private final ModelGateway modelGateway;
+    private final String smallModel;
+
+    public OllamaService(OllamaBackendPool backendPool,
+                         ModelGateway modelGateway,
+                         @Value("${app.llm.routing.small-model}") String smallModel) {
+        this.backendPool = backendPool;
+        this.modelGateway = modelGateway;
+        this.smallModel = smallModel;
+    }
 
     public String generateText(String prompt) {
+        return generateText(prompt, ModelPriority.INTERACTIVE, null);
+    }
+
+    public String generateText(String prompt, ModelPriority priority, String affinityKey) {
+        return generateText(prompt, priority, affinityKey, ModelTier.LARGE);
+    }
+
+    public String generateText(String prompt, ModelPriority priority, String affinityKey, ModelTier tier) {
+        modelGateway.acquire(priority);
         try {
-            log.info("Generating text from Ollama model with prompt length: {}", prompt.length());
-            return ollama.call(prompt);
+            log.info("Generating text from Ollama {} model with prompt length: {} ({} priority)", tier, prompt.length(), priority);
+            OllamaBackend backend = backendPool.select(affinityKey);
+            try {
+                return call(backend, toPrompt(prompt, tier), affinityKey);
+            } catch (Exception e) {
+                // One retry on another backend, the failed one may be on its way out of the pool
+                OllamaBackend fallback = backendPool.selectOther(backend);
+                if (fallback == null) {
+                    throw e;
+                }
+                log.warn("Ollama backend {} failed, retrying on {}", backend.getBaseUrl(), fallback.getBaseUrl());
+                return call(fallback, toPrompt(prompt, tier), affinityKey);
+            }
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error generating text from Ollama model", e);
             throw new RuntimeException("Failed to generate text from Ollama model", e);
+        } finally {
+            modelGateway.release();
         }
     }
-}
 
+    // Evaluates the prefix with a single output token, leaving it in the backend's prompt cache for the next turn.
+    // Only runs on a slot that is free right now, returns false when the model is busy and the warm-up was skipped
+    public boolean warmUp(String prefix, String affinityKey) {
+        if (!modelGateway.tryAcquire()) {
+            return false;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            OllamaBackend backend = backendPool.select(affinityKey);
+            call(backend, new Prompt(prefix, OllamaChatOptions.builder().numPredict(1).build()), affinityKey);
+            log.info("Warmed up Ollama backend {} with a {} character prefix in {}ms", backend.getBaseUrl(),
+                    prefix.length(), System.currentTimeMillis() - startTime);
+            return true;
+        } finally {
+            modelGateway.release();
+        }
+    }
+
+    public Flux<String> streamText(String prompt, String affinityKey) {
+        return streamText(prompt, affinityKey, ModelTier.LARGE);
+    }
+
+    public Flux<String> streamText(String prompt, String affinityKey, ModelTier tier) {
+        // Waiting for a slot blocks, so it happens on boundedElastic rather than on the subscriber's thread
+        return Flux.defer(() -> {
+            // The slot is held from subscription until the stream ends, errors or is cancelled
+            modelGateway.acquire(ModelPriority.INTERACTIVE);
+            OllamaBackend backend;
+            try {
+                backend = backendPool.select(affinityKey);
+            } catch (RuntimeException e) {
+                modelGateway.release();
+                throw e;
+            }
+
+            log.info("Streaming text from Ollama {} model on {} with prompt length: {}", tier, backend.getBaseUrl(), prompt.length());
+            long startTime = System.currentTimeMillis();
+            AtomicBoolean firstToken = new AtomicBoolean(true);
+            backend.begin();
+
+            return backend.getChatModel().stream(toPrompt(prompt, tier))
+                    .mapNotNull(OllamaService::textOf)
+                    .doOnNext(token -> {
+                        if (firstToken.compareAndSet(true, false)) {
+                            log.info("Time to first token: {}ms", System.currentTimeMillis() - startTime);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        backendPool.recordSuccess(backend, affinityKey);
+                        log.info("Streamed response from Ollama in {}ms", System.currentTimeMillis() - startTime);
+                    })
+                    .onErrorMap(e -> !(e instanceof ServiceUnavailableException), e -> {
+                        log.error("Error streaming text from Ollama model", e);
+                        backendPool.recordFailure(backend);
+                        return new RuntimeException("Failed to generate text from Ollama model", e);
+                    })
+                    .doFinally(signal -> {
+                        backend.end();
+                        modelGateway.release();
+                    });
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // The large tier runs with the configured default options, the small one only overrides the model
+    private Prompt toPrompt(String prompt, ModelTier tier) {
+        return tier == ModelTier.SMALL
+                ? new Prompt(prompt, OllamaChatOptions.builder().model(smallModel).build())
+                : new Prompt(prompt);
+    }
+
+    private String call(OllamaBackend backend, Prompt prompt, String affinityKey) {
+        backend.begin();
+        try {
+            String response = textOf(backend.getChatModel().call(prompt));
+            backendPool.recordSuccess(backend, affinityKey);
+            return response == null ? "" : response;
+        } catch (RuntimeException e) {
+            backendPool.recordFailure(backend);
+            throw e;
+        } finally {
+            backend.end();
+        }
+    }
+
+    private static String textOf(ChatResponse response) {
+        return response == null || response.getResult() == null ? null : response.getResult().getOutput().getText();
+    }
+}
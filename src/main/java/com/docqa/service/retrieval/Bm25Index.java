@@ -0,0 +1,120 @@
+package com.docqa.service.retrieval;
+
+import com.docqa.model.DocumentChunk;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final int[] chunkSequences;
+    private final int[] chunkLengths;
+    private final double averageLength;
+    private final Map<String, Postings> postings;
+    private final long postingCount;
+
+    private Bm25Index(int[] chunkSequences, int[] chunkLengths, Map<String, Postings> postings, long postingCount) {
+        this.chunkSequences = chunkSequences;
+        this.chunkLengths = chunkLengths;
+        this.postings = postings;
+        this.postingCount = postingCount;
+
+        long totalLength = 0;
+        for (int length : chunkLengths) {
+            totalLength += length;
+        }
+        this.averageLength = chunkLengths.length > 0 ? Math.max(1.0, (double) totalLength / chunkLengths.length) : 1.0;
+    }
+
+    public static Bm25Index build(List<DocumentChunk> chunks) {
+        int[] sequences = new int[chunks.size()];
+        int[] lengths = new int[chunks.size()];
+        Map<String, List<int[]>> builder = new HashMap<>();
+        long postingCount = 0;
+
+        // Invert the per-chunk term frequencies into term -> (chunk, frequency) postings
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunk chunk = chunks.get(i);
+            sequences[i] = chunk.getSequence();
+            lengths[i] = chunk.getTokenCount();
+            if (chunk.getTermFrequencies() == null) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> term : chunk.getTermFrequencies().entrySet()) {
+                builder.computeIfAbsent(term.getKey(), key -> new ArrayList<>()).add(new int[]{i, term.getValue()});
+                postingCount++;
+            }
+        }
+
+        Map<String, Postings> postings = new HashMap<>(builder.size() * 2);
+        builder.forEach((term, entries) -> {
+            int[] chunkIndexes = new int[entries.size()];
+            int[] frequencies = new int[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                chunkIndexes[i] = entries.get(i)[0];
+                frequencies[i] = entries.get(i)[1];
+            }
+            postings.put(term, new Postings(chunkIndexes, frequencies));
+        });
+
+        return new Bm25Index(sequences, lengths, postings, postingCount);
+    }
+
+    public List<Integer> search(List<String> queryTerms, int topK) {
+        double[] scores = new double[chunkSequences.length];
+        int chunkCount = chunkSequences.length;
+
+        for (String term : new LinkedHashSet<>(queryTerms)) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+
+            int documentFrequency = termPostings.chunkIndexes().length;
+            double idf = Math.log(1 + (chunkCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (int i = 0; i < documentFrequency; i++) {
+                int chunk = termPostings.chunkIndexes()[i];
+                int frequency = termPostings.frequencies()[i];
+                double norm = K1 * (1 - B + B * chunkLengths[chunk] / averageLength);
+                scores[chunk] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+
+        // Keep the k best scoring chunks in a min-heap
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingDouble(chunk -> scores[chunk]));
+        for (int chunk = 0; chunk < scores.length; chunk++) {
+            if (scores[chunk] <= 0) {
+                continue;
+            }
+            best.offer(chunk);
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+
+        List<Integer> sequences = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            sequences.addFirst(chunkSequences[best.poll()]);
+        }
+        return sequences;
+    }
+
+    public int chunkCount() {
+        return chunkSequences.length;
+    }
+
+    public long postingCount() {
+        return postingCount;
+    }
+
+    private record Postings(int[] chunkIndexes, int[] frequencies) {
+    }
+}
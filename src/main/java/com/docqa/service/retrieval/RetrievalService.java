@@ -0,0 +1,141 @@
+package com.docqa.service.retrieval;
+
+import com.docqa.model.DocumentChunk;
+import com.docqa.repository.DocumentChunkRepository;
+import com.docqa.util.BoundedCache;
+import com.docqa.util.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@Service
+@Slf4j
+public class RetrievalService {
+
+    private final DocumentChunkRepository documentChunkRepository;
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int topK;
+
+    // Inverted indexes built from the persisted per-chunk term frequencies, bounded by posting count
+    private final BoundedCache<String, Bm25Index> indexCache;
+
+    public RetrievalService(DocumentChunkRepository documentChunkRepository,
+                            MongoTemplate mongoTemplate,
+                            @Value("${app.retrieval.enabled}") boolean enabled,
+                            @Value("${app.retrieval.top-k}") int topK,
+                            @Value("${app.retrieval.max-cached-postings}") long maxCachedPostings) {
+        this.documentChunkRepository = documentChunkRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.topK = topK;
+        this.indexCache = new BoundedCache<>(maxCachedPostings, Bm25Index::postingCount);
+    }
+
+    public void annotate(List<DocumentChunk> chunks) {
+        for (DocumentChunk chunk : chunks) {
+            List<String> tokens = TextTokenizer.tokenize(chunk.getText());
+            chunk.setTokenCount(tokens.size());
+            chunk.setTermFrequencies(TextTokenizer.termFrequencies(tokens));
+        }
+    }
+
+    public boolean usesRetrieval(String documentId) {
+        return enabled && index(documentId).chunkCount() > topK;
+    }
+
+    public Optional<List<DocumentChunk>> retrieve(String documentId, String question) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        // Documents no larger than top-k chunks go into the prompt whole
+        Bm25Index index = index(documentId);
+        if (index.chunkCount() <= topK) {
+            return Optional.empty();
+        }
+
+        List<Integer> sequences = index.search(TextTokenizer.tokenize(question), topK);
+        if (sequences.isEmpty()) {
+            // Nothing matched (e.g. "summarize this"), fall back to the opening of the document
+            sequences = IntStream.range(0, topK).boxed().toList();
+        }
+
+        // Most relevant first, so the prompt drops the weakest matches when it runs out of room
+        List<Integer> ranking = sequences;
+        List<DocumentChunk> chunks = new ArrayList<>(documentChunkRepository.findByDocumentIdAndSequenceInOrderBySequenceAsc(documentId, sequences));
+        chunks.sort(Comparator.comparingInt(chunk -> ranking.indexOf(chunk.getSequence())));
+        log.info("Retrieved {} of {} chunks for document {} from pages {}", chunks.size(), index.chunkCount(), documentId,
+                chunks.stream().map(DocumentChunk::getPageNumber).distinct().toList());
+        return Optional.of(chunks);
+    }
+
+    // Called whenever the chunks of a document are written or deleted
+    public void evict(String documentId) {
+        indexCache.invalidate(documentId);
+    }
+
+    // An empty index is never cached, it only means the chunks are not written yet
+    private Bm25Index index(String documentId) {
+        Bm25Index index = indexCache.getOrLoad(documentId, id -> {
+            Bm25Index loaded = loadIndex(id);
+            return loaded.chunkCount() > 0 ? loaded : null;
+        });
+        return index != null ? index : Bm25Index.build(List.of());
+    }
+
+    private Bm25Index loadIndex(String documentId) {
+        long startTime = System.currentTimeMillis();
+
+        // Only the term statistics are needed to rebuild the index, never the chunk text
+        Query query = Query.query(where("documentId").is(documentId)).with(Sort.by("sequence"));
+        query.fields().exclude("text");
+        List<DocumentChunk> chunks = mongoTemplate.find(query, DocumentChunk.class);
+
+        List<Integer> unindexed = chunks.stream().filter(chunk -> chunk.getTermFrequencies() == null).map(DocumentChunk::getSequence).toList();
+        if (!unindexed.isEmpty()) {
+            backfillTermFrequencies(documentId, unindexed, chunks);
+        }
+
+        Bm25Index index = Bm25Index.build(chunks);
+        log.info("Loaded BM25 index for document {} ({} chunks, {} postings) in {}ms",
+                documentId, index.chunkCount(), index.postingCount(), System.currentTimeMillis() - startTime);
+        return index;
+    }
+
+    // Chunks stored before retrieval existed are tokenized once and persisted
+    private void backfillTermFrequencies(String documentId, List<Integer> sequences, List<DocumentChunk> chunks) {
+        List<DocumentChunk> withText = documentChunkRepository.findByDocumentIdAndSequenceInOrderBySequenceAsc(documentId, sequences);
+        annotate(withText);
+
+        Map<Integer, DocumentChunk> bySequence = withText.stream().collect(Collectors.toMap(DocumentChunk::getSequence, Function.identity()));
+        for (DocumentChunk chunk : chunks) {
+            DocumentChunk annotated = bySequence.get(chunk.getSequence());
+            if (annotated == null) {
+                continue;
+            }
+            chunk.setTokenCount(annotated.getTokenCount());
+            chunk.setTermFrequencies(annotated.getTermFrequencies());
+            mongoTemplate.updateFirst(Query.query(where("_id").is(annotated.getId())),
+                    new Update().set("tokenCount", annotated.getTokenCount()).set("termFrequencies", annotated.getTermFrequencies()),
+                    DocumentChunk.class);
+        }
+        log.info("Backfilled term frequencies for {} chunks of document {}", withText.size(), documentId);
+    }
+
+}
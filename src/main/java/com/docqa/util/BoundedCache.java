@@ -0,0 +1,149 @@
+package com.docqa.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+public class BoundedCache<K, V> {
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final long ttlNanos;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long weight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // Bumped on every invalidation, a load that overlaps one may have read stale data and is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public BoundedCache(long maxWeight, ToLongFunction<V> weigher) {
+        this(maxWeight, weigher, null);
+    }
+
+    public BoundedCache(long maxWeight, ToLongFunction<V> weigher, Duration ttl) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.ttlNanos = ttl != null && !ttl.isZero() ? ttl.toNanos() : 0;
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                remove(key);
+                entry = null;
+            }
+            (entry != null ? hits : misses).incrementAndGet();
+            return entry != null ? entry.value() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Load outside the lock so a slow loader does not block other keys
+        long invalidationsBefore = invalidations.get();
+        V loaded = loader.apply(key);
+        if (loaded != null && invalidations.get() == invalidationsBefore) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        long valueWeight = weigher.applyAsLong(value);
+        if (valueWeight > maxWeight) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            remove(key);
+            long expiresAt = ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0;
+            entries.put(key, new Entry<>(value, valueWeight, expiresAt));
+            weight += valueWeight;
+            evictOverflow();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        lock.lock();
+        try {
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+
+    private void evictOverflow() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Entry<V> entry = eldest.next().getValue();
+            if (weight <= maxWeight && !entry.isExpired(now)) {
+                break;
+            }
+            weight -= entry.weight();
+            eldest.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long weight, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.docqa.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class BufferPool {
+
+    private final BlockingQueue<byte[]> buffers;
+
+    public BufferPool(int bufferCount, int bufferSize) {
+        this.buffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            buffers.add(new byte[bufferSize]);
+        }
+    }
+
+    public byte[] acquire() {
+        try {
+            // Blocks when every buffer is in use, so concurrent uploads cannot grow the heap
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an upload buffer", e);
+        }
+    }
+
+    public void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+}
@@ -6,6 +6,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -13,17 +19,55 @@ import java.security.NoSuchAlgorithmException;
 @Slf4j
 public class FileHashUtil {
 
-    public static String calculateFileHash(MultipartFile file) {
+    public static SpooledUpload spoolAndHash(MultipartFile file, BufferPool bufferPool) {
+        Path tempFile = null;
+        byte[] buffer = bufferPool.acquire();
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(file.getBytes());
-            return bytesToHex(hash);
+            tempFile = Files.createTempFile("upload_", ".pdf");
+
+            // Single pass: the digest sees every byte on its way to the temp file
+            long size = 0;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+
+            return new SpooledUpload(tempFile, file.getOriginalFilename(), file.getContentType(), bytesToHex(digest.digest()), size);
         } catch (IOException e) {
-            log.error("Error reading file for hashing", e);
+            log.error("Error spooling file for hashing", e);
+            deleteQuietly(tempFile);
             throw new RuntimeException("Failed to calculate file hash", e);
         } catch (NoSuchAlgorithmException e) {
             log.error("SHA-256 algorithm not available", e);
             throw new RuntimeException("SHA-256 algorithm not available", e);
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    public static String sha256Hex(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return bytesToHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            log.error("SHA-256 algorithm not available", e);
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}: {}", file, e.getMessage());
         }
     }
 
@@ -39,4 +83,3 @@ public class FileHashUtil {
         return hexString.toString();
     }
 }
-
@@ -0,0 +1,47 @@
+package com.docqa.util;
+
+import java.util.concurrent.Semaphore;
+
+public class MemoryBudget {
+
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final Semaphore permits;
+    private final int totalPermits;
+
+    public MemoryBudget(long totalBytes) {
+        this.totalPermits = toPermits(totalBytes);
+        this.permits = new Semaphore(totalPermits, true);
+    }
+
+    public void acquire(long bytes) {
+        try {
+            // Fair semaphore: callers queue in arrival order once the budget is used up
+            permits.acquire(clamp(bytes));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parse memory budget", e);
+        }
+    }
+
+    public void release(long bytes) {
+        permits.release(clamp(bytes));
+    }
+
+    public long availableBytes() {
+        return (long) permits.availablePermits() * BYTES_PER_PERMIT;
+    }
+
+    public int queueLength() {
+        return permits.getQueueLength();
+    }
+
+    // A single reservation never exceeds the whole budget, otherwise it would wait forever
+    private int clamp(long bytes) {
+        return Math.min(totalPermits, toPermits(bytes));
+    }
+
+    private static int toPermits(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+    }
+}
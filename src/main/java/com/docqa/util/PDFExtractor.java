@@ -4,40 +4,64 @@ import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 @Slf4j
 public class PDFExtractor {
 
-    public static String extractTextFromPDF(MultipartFile file) {
+    public static PDDocument loadPDF(Path pdfFile, StreamCacheCreateFunction streamCache) {
 
         try {
+            PDDocument document = Loader.loadPDF(pdfFile.toFile(), streamCache);
 
-            File tempFile = Files.createTempFile("upload_", ".pdf").toFile();
-            file.transferTo(tempFile);
+            if (document.isEncrypted()) {
+                document.close();
+                throw new IllegalArgumentException("Encrypted PDFs are not supported");
+            }
 
-            try (PDDocument document = Loader.loadPDF(tempFile)) {
+            return document;
 
-                if (document.isEncrypted()) {
-                    throw new IllegalArgumentException("Encrypted PDFs are not supported");
-                }
+        } catch (IOException e) {
+            log.error("Error loading PDF", e);
+            throw new RuntimeException("Failed to extract text from PDF", e);
+        }
 
-                PDFTextStripper stripper = new PDFTextStripper();
-                return stripper.getText(document).trim();
+    }
+
+    public static List<String> extractPages(PDDocument document, int startPage, int endPage) {
 
-            } finally {
-                log.info("Deleting temporary file: {}", tempFile.delete());
+        try {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<String> pages = new ArrayList<>(endPage - startPage + 1);
+            for (int page = startPage; page <= endPage; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
             }
+            return pages;
+
+        } catch (IOException e) {
+            log.error("Error extracting text from PDF pages {}-{}", startPage, endPage, e);
+            throw new RuntimeException("Failed to extract text from PDF", e);
+        }
+
+    }
+
+    public static List<String> extractPages(Path pdfFile, StreamCacheCreateFunction streamCache, int startPage, int endPage) {
 
+        // Each caller gets its own document handle, PDDocument is not thread-safe
+        try (PDDocument document = loadPDF(pdfFile, streamCache)) {
+            return extractPages(document, startPage, endPage);
         } catch (IOException e) {
-            log.error("Error extracting text from PDF", e);
+            log.error("Error closing PDF", e);
             throw new RuntimeException("Failed to extract text from PDF", e);
         }
 
@@ -0,0 +1,19 @@
+package com.docqa.util;
+
+public record PromptBudget(int contextWindow, int answerReserve, double maxHistoryShare) {
+
+    public PromptBudget {
+        if (answerReserve >= contextWindow) {
+            throw new IllegalArgumentException("Answer reserve " + answerReserve + " leaves no room in a context window of " + contextWindow);
+        }
+    }
+
+    // Tokens the prompt may use, the rest of the window is left for the answer
+    public int promptTokens() {
+        return contextWindow - answerReserve;
+    }
+
+    public int maxHistoryTokens() {
+        return (int) (promptTokens() * maxHistoryShare);
+    }
+}
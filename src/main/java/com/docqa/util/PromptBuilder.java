@@ -2,40 +2,236 @@ package com.docqa.util;
 
 import com.docqa.model.ChatMessage;
 import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentChunk;
+import com.docqa.model.Role;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class PromptBuilder {
 
-    public static String buildContextualPrompt(ChatSession session, String currentQuestion) {
-        StringBuilder promptBuilder = new StringBuilder();
+    private static final String TRUNCATION_MARKER = "\n[... document truncated to fit the model context ...]";
+    private static final String DOCUMENT_HEADER = "You are a helpful assistant analyzing the following document:\n\n---DOCUMENT START---\n";
+    private static final String DOCUMENT_END = "\n---DOCUMENT END---\n\n";
+    private static final String DOCUMENT_FOOTER = "Please provide a detailed answer based on the document and conversation history.";
+
+    // Room always kept for the current question, so the document's share of the budget never depends on it
+    private static final int MAX_QUESTION_TOKENS = 512;
+
+    public static String buildContextualPrompt(ChatSession session, String documentText, String currentQuestion,
+                                               PromptBudget budget, TokenEstimator estimator) {
+
+        // Stable document prefix first, then question and recent turns in what is left
+        String prefix = documentPrefix(documentText, budget, estimator);
+        Budget remaining = new Budget(budget.promptTokens(), estimator);
+        remaining.take(prefix + DOCUMENT_FOOTER);
+        String question = questionSection(currentQuestion, remaining);
+        String history = historySection(session, remaining, budget.maxHistoryTokens());
+
+        return prefix + history + question + DOCUMENT_FOOTER;
+    }
+
+    // Byte-identical for every turn on the same document, so Ollama can reuse the prompt cache for it
+    public static String documentPrefix(String documentText, PromptBudget budget, TokenEstimator estimator) {
+        int documentTokens = budget.promptTokens() - budget.maxHistoryTokens() - MAX_QUESTION_TOKENS
+                - estimator.estimate(DOCUMENT_HEADER + DOCUMENT_END + DOCUMENT_FOOTER);
+        return DOCUMENT_HEADER + truncateToTokens(documentText, Math.max(documentTokens, 0), estimator) + DOCUMENT_END;
+    }
+
+    public static String retrievalPrefix(ChatSession session) {
+        return "You are a helpful assistant analyzing the document \"" + session.getDocumentName()
+                + "\". The following excerpts are the parts of it most relevant to the question:\n\n";
+    }
+
+    public static String buildRetrievalPrompt(ChatSession session, List<DocumentChunk> excerpts, String currentQuestion,
+                                              PromptBudget budget, TokenEstimator estimator) {
+        String header = retrievalPrefix(session);
+        String excerptsEnd = "---EXCERPTS END---\n\n";
+        String footer = "Please provide a detailed answer based on the excerpts and conversation history, "
+                + "citing the page numbers you used, e.g. (page 3).";
 
-        // Document context
-        promptBuilder.append("You are a helpful assistant analyzing the following document:\n\n");
-        promptBuilder.append("---DOCUMENT START---\n");
-        promptBuilder.append(session.getExtractedText());
-        promptBuilder.append("\n---DOCUMENT END---\n\n");
-
-        // Conversation history
-        if (!session.getMessages().isEmpty() && session.getMessages().size() > 1) {
-            promptBuilder.append("Previous conversation:\n");
-            // Include last 5 exchanges to keep context window manageable
-            int startIndex = Math.max(0, session.getMessages().size() - 10);
-            for (int i = startIndex; i < session.getMessages().size() - 1; i++) {
-                ChatMessage msg = session.getMessages().get(i);
-                promptBuilder.append(msg.getRole().equals("user") ? "User: " : "Assistant: ");
-                promptBuilder.append(msg.getContent()).append("\n");
+        Budget remaining = new Budget(budget.promptTokens(), estimator);
+        remaining.take(header + excerptsEnd + footer);
+        String question = questionSection(currentQuestion, remaining);
+        String history = historySection(session, remaining, budget.maxHistoryTokens());
+
+        // Excerpts arrive most relevant first, the ones that fit are shown in document order
+        List<DocumentChunk> included = new ArrayList<>();
+        for (DocumentChunk excerpt : excerpts) {
+            if (remaining.take(excerptSection(excerpt))) {
+                included.add(excerpt);
             }
-            promptBuilder.append("\n");
         }
+        included.sort(Comparator.comparingInt(DocumentChunk::getSequence));
+
+        StringBuilder promptBuilder = new StringBuilder(header);
+        included.forEach(excerpt -> promptBuilder.append(excerptSection(excerpt)));
+        return promptBuilder.append(excerptsEnd).append(history).append(question).append(footer).toString();
+    }
+
+    // The previous messages a prompt includes, the last message being the current question
+    public static List<ChatMessage> historyWindow(ChatSession session) {
+        List<ChatMessage> messages = session.getMessages();
+        if (messages == null || messages.size() <= 1) {
+            return List.of();
+        }
+        // Include last 5 exchanges to keep context window manageable
+        int startIndex = Math.max(0, messages.size() - 10);
+
+        // Messages already folded into the conversation summary are not repeated
+        Integer summarized = session.getSummarizedMessageCount();
+        if (summarized != null && session.getMessageCount() != null) {
+            int firstLoadedIndex = session.getMessageCount() - (messages.size() - 1);
+            startIndex = Math.max(startIndex, summarized - firstLoadedIndex);
+        }
+        return messages.subList(Math.min(startIndex, messages.size() - 1), messages.size() - 1);
+    }
+
+    public static String buildSummaryPrompt(String previousSummary, List<ChatMessage> messages, int maxSummaryChars) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("You maintain a running summary of a conversation between a user and an assistant about a document.\n\n");
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            promptBuilder.append("Summary so far:\n").append(previousSummary).append("\n\n");
+        }
+        promptBuilder.append("New messages:\n");
+        for (ChatMessage msg : messages) {
+            promptBuilder.append(roleLabel(msg)).append(msg.getContent()).append("\n");
+        }
+        promptBuilder.append("\nWrite the updated summary in at most ").append(maxSummaryChars).append(" characters. ");
+        promptBuilder.append("Keep the questions asked, the facts established and any open points. Reply with the summary only.");
+        return promptBuilder.toString();
+    }
 
-        // Current question
-        promptBuilder.append("Current question:\n");
-        promptBuilder.append(currentQuestion).append("\n\n");
-        promptBuilder.append("Please provide a detailed answer based on the document and conversation history.");
+    public static String buildSectionSummaryPrompt(String documentName, String sectionText, int section, int sectionCount) {
+        return "You are summarizing part " + section + " of " + sectionCount + " of the document \"" + documentName + "\".\n\n"
+                + "---SECTION START---\n" + sectionText + "\n---SECTION END---\n\n"
+                + "Summarize this part, keeping its key facts, figures, names and conclusions. Reply with the summary only.";
+    }
 
+    public static String buildMergeSummaryPrompt(String documentName, List<String> partialSummaries) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("The following are summaries of consecutive parts of the document \"")
+                .append(documentName).append("\", in order:\n\n");
+        for (int i = 0; i < partialSummaries.size(); i++) {
+            promptBuilder.append("---PART ").append(i + 1).append("---\n").append(partialSummaries.get(i)).append("\n\n");
+        }
+        promptBuilder.append("Combine them into a single coherent summary of the whole, without repeating points. ");
+        promptBuilder.append("Reply with the summary only.");
         return promptBuilder.toString();
     }
 
+    public static String buildSuggestedQuestionsPrompt(String documentName, String summary, int count) {
+        return "Here is a summary of the document \"" + documentName + "\":\n\n" + summary + "\n\n"
+                + "Write the " + count + " questions a reader is most likely to ask about this document, "
+                + "one per line, without numbering or any other text.";
+    }
+
+    // Longest prefix within the budget, cut at a word boundary
+    public static String truncateToTokens(String text, int maxTokens, TokenEstimator estimator) {
+        if (text == null || estimator.estimate(text) <= maxTokens) {
+            return text == null ? "" : text;
+        }
+        int available = maxTokens - estimator.estimate(TRUNCATION_MARKER);
+        if (available <= 0) {
+            return "";
+        }
+
+        int low = 0;
+        int high = text.length();
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (estimator.estimate(text.substring(0, mid)) <= available) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int cut = low;
+        while (cut > 0 && !Character.isWhitespace(text.charAt(cut - 1))) {
+            cut--;
+        }
+        return text.substring(0, cut > 0 ? cut : low).stripTrailing() + TRUNCATION_MARKER;
+    }
+
+    // Capped at the room the document prefix leaves for it, so a huge question cannot crowd out history or excerpts
+    private static String questionSection(String currentQuestion, Budget remaining) {
+        String prefix = "Current question:\n";
+        String suffix = "\n\n";
+        int available = Math.min(remaining.tokens, MAX_QUESTION_TOKENS) - remaining.estimator.estimate(prefix + suffix);
+        String section = prefix + truncateToTokens(currentQuestion, Math.max(available, 0), remaining.estimator) + suffix;
+        remaining.take(section);
+        return section;
+    }
+
+    private static String historySection(ChatSession session, Budget remaining, int maxHistoryTokens) {
+        List<ChatMessage> history = historyWindow(session);
+        String summary = session.getConversationSummary();
+        boolean hasSummary = summary != null && !summary.isBlank();
+        String heading = "Previous conversation:\n";
+        Budget historyBudget = new Budget(Math.min(remaining.tokens, maxHistoryTokens), remaining.estimator);
+        if ((history.isEmpty() && !hasSummary) || !historyBudget.take(heading + "\n")) {
+            return "";
+        }
+
+        // Newest turns first, stopping at the first one that no longer fits so the kept history stays contiguous
+        List<String> lines = new ArrayList<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            ChatMessage msg = history.get(i);
+            String line = roleLabel(msg) + msg.getContent() + "\n";
+            if (!historyBudget.take(line)) {
+                break;
+            }
+            lines.add(0, line);
+        }
+
+        // The summary of older turns gets what the recent turns leave
+        if (hasSummary) {
+            String prefix = "Summary of the earlier conversation: ";
+            int available = historyBudget.tokens - historyBudget.estimator.estimate(prefix + "\n");
+            String summaryText = truncateToTokens(summary, Math.max(available, 0), historyBudget.estimator);
+            if (!summaryText.isEmpty()) {
+                lines.add(0, prefix + summaryText + "\n");
+            }
+        }
+        if (lines.isEmpty()) {
+            return "";
+        }
+
+        String section = heading + String.join("", lines) + "\n";
+        remaining.take(section);
+        return section;
+    }
+
+    private static String roleLabel(ChatMessage msg) {
+        return msg.getRole() == Role.user ? "User: " : "Assistant: ";
+    }
+
+    private static String excerptSection(DocumentChunk excerpt) {
+        return "---EXCERPT (page " + excerpt.getPageNumber() + ")---\n" + excerpt.getText().trim() + "\n\n";
+    }
+
+    private static final class Budget {
+
+        private final TokenEstimator estimator;
+        private int tokens;
+
+        private Budget(int tokens, TokenEstimator estimator) {
+            this.tokens = tokens;
+            this.estimator = estimator;
+        }
+
+        private boolean take(String text) {
+            int cost = estimator.estimate(text);
+            if (cost > tokens) {
+                return false;
+            }
+            tokens -= cost;
+            return true;
+        }
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.docqa.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Slf4j
+public record SpooledUpload(Path file, String fileName, String contentType, String fileHash, long size) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        try {
+            log.info("Deleting temporary file: {}", Files.deleteIfExists(file));
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary file {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.docqa.util;
+
+import com.docqa.model.DocumentChunk;
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TextChunker {
+
+    public static List<DocumentChunk> chunkPages(List<String> pages, int chunkSize) {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        long documentOffset = 0;
+
+        for (int page = 0; page < pages.size(); page++) {
+            String pageText = pages.get(page);
+            int start = 0;
+
+            // Chunks never span pages, and prefer to break on whitespace
+            while (start < pageText.length()) {
+                int end = Math.min(pageText.length(), start + chunkSize);
+                if (end < pageText.length()) {
+                    int lastSpace = lastWhitespace(pageText, start, end);
+                    if (lastSpace > start) {
+                        end = lastSpace + 1;
+                    }
+                }
+
+                chunks.add(DocumentChunk.builder()
+                        .sequence(chunks.size())
+                        .pageNumber(page + 1)
+                        .startOffset(documentOffset + start)
+                        .endOffset(documentOffset + end)
+                        .text(pageText.substring(start, end))
+                        .build());
+                start = end;
+            }
+            documentOffset += pageText.length();
+        }
+
+        return chunks;
+    }
+
+    private static int lastWhitespace(String text, int start, int end) {
+        for (int i = end - 1; i > start; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
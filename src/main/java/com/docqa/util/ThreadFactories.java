@@ -0,0 +1,17 @@
+package com.docqa.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.ThreadFactory;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class ThreadFactories {
+
+    // Virtual threads for executors that mostly wait on Mongo, Elasticsearch or Ollama; pool sizes and queues still bound the work
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        return virtual
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : Thread.ofPlatform().name(prefix, 0).daemon(false).factory();
+    }
+}
@@ -0,0 +1,12 @@
+package com.docqa.util;
+
+@FunctionalInterface
+public interface TokenEstimator {
+
+    int estimate(String text);
+
+    // Rounds up so the sum over parts of a prompt never underestimates the whole
+    static TokenEstimator charsPerToken(double charsPerToken) {
+        return text -> text == null ? 0 : (int) Math.ceil(text.length() / charsPerToken);
+    }
+}
@@ -0,0 +1,108 @@
+package com.docqa.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+public class VectorStore<T> {
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Vectors are kept unit-length in one flat array, so cosine similarity is a plain dot product
+    private float[] vectors;
+    private final Object[] payloads;
+    private int dimension;
+    private int size;
+    private int next;
+
+    public VectorStore(int capacity) {
+        this.capacity = capacity;
+        this.payloads = new Object[capacity];
+    }
+
+    public void add(float[] vector, T payload) {
+        lock.lock();
+        try {
+            if (vectors == null) {
+                dimension = vector.length;
+                vectors = new float[capacity * dimension];
+            }
+            if (vector.length != dimension) {
+                return;
+            }
+
+            // Once full, the oldest entry is overwritten
+            System.arraycopy(normalize(vector), 0, vectors, next * dimension, dimension);
+            payloads[next] = payload;
+            next = (next + 1) % capacity;
+            size = Math.min(size + 1, capacity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Match<T> nearest(float[] vector) {
+        return nearest(vector, payload -> true);
+    }
+
+    // Nearest entry whose payload is accepted, e.g. one that has not expired
+    @SuppressWarnings("unchecked")
+    public Match<T> nearest(float[] vector, Predicate<T> accept) {
+        float[] query = normalize(vector);
+        lock.lock();
+        try {
+            if (size == 0 || query.length != dimension) {
+                return null;
+            }
+
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                if (!accept.test((T) payloads[i])) {
+                    continue;
+                }
+                double score = 0;
+                int offset = i * dimension;
+                for (int d = 0; d < dimension; d++) {
+                    score += query[d] * vectors[offset + d];
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+            return best >= 0 ? new Match<>((T) payloads[best], bestScore) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    public record Match<T>(T payload, double similarity) {
+    }
+}
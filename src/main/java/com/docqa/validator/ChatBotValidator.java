@@ -1,5 +1,6 @@
 package com.docqa.validator;
 
+import com.docqa.dto.ChatBatchRequest;
 import com.docqa.dto.ChatMessageRequest;
 import com.docqa.exception.ValidationException;
 import io.micrometer.common.util.StringUtils;
@@ -43,6 +44,29 @@ public class ChatBotValidator {
         }
     }
 
+    public static void validateChatBatchRequest(ChatBatchRequest request, int maxQuestions) {
+
+        if (Objects.isNull(request)) {
+            throw new ValidationException("Request cannot be null");
+        }
+
+        if (StringUtils.isBlank(request.sessionId()) && StringUtils.isBlank(request.documentId())) {
+            throw new ValidationException("Session ID or document ID is required");
+        }
+
+        if (request.questions() == null || request.questions().isEmpty()) {
+            throw new ValidationException("At least one question is required");
+        }
+
+        if (request.questions().size() > maxQuestions) {
+            throw new ValidationException(String.format("A batch may contain at most %d questions", maxQuestions));
+        }
+
+        if (request.questions().stream().anyMatch(StringUtils::isBlank)) {
+            throw new ValidationException("Questions cannot be blank");
+        }
+    }
+
     public static void validateSessionId(String sessionId) {
         if (StringUtils.isBlank(sessionId)) {
             throw new ValidationException("Session ID is required");
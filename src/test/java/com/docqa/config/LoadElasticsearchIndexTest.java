@@ -0,0 +1,123 @@
+package com.docqa.config;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.CountResponse;
+import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
+import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetAliasResponse;
+import co.elastic.clients.elasticsearch.indices.get_alias.IndexAliases;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class LoadElasticsearchIndexTest {
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+    @Mock
+    private ElasticsearchIndicesClient indices;
+
+    private LoadElasticsearchIndex loadElasticsearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(elasticsearchClient.indices()).thenReturn(indices);
+        loadElasticsearchIndex = new LoadElasticsearchIndex(elasticsearchClient, "chat-sessions", 2, 1, "1s");
+    }
+
+    @Test
+    void failedStartupPreparationIsRetriedBeforeTheFirstWrite() throws Exception {
+        when(indices.existsAlias(any(Function.class)))
+                .thenThrow(new IOException("Connection refused"))
+                .thenThrow(new IOException("Connection refused"))
+                .thenReturn(new BooleanResponse(false));
+        when(indices.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(false));
+
+        loadElasticsearchIndex.initializeIndices();
+
+        // No write target is handed out while the aliases do not exist
+        assertThatThrownBy(loadElasticsearchIndex::getWriteTargets).isInstanceOf(IllegalStateException.class);
+        assertThat(loadElasticsearchIndex.getWriteTargets()).containsExactly("chat-sessions-write");
+        assertThat(loadElasticsearchIndex.getWriteTargets()).containsExactly("chat-sessions-write");
+        verify(indices, times(3)).existsAlias(any(Function.class));
+        verify(indices).updateAliases(any(Function.class));
+    }
+
+    @Test
+    void concurrentWritersPrepareTheIndexOnce() throws Exception {
+        when(indices.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(false));
+        when(indices.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(false));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> targets = IntStream.range(0, 20)
+                    .mapToObj(i -> executor.submit(loadElasticsearchIndex::getWriteTargets))
+                    .toList();
+            for (Future<List<String>> target : targets) {
+                assertThat(target.get()).containsExactly("chat-sessions-write");
+            }
+        }
+        verify(indices).existsAlias(any(Function.class));
+        verify(indices).updateAliases(any(Function.class));
+    }
+
+    @Test
+    void swapIsRefusedWhileTheNewIndexIsMissingSessions() throws Exception {
+        startMigration();
+        when(elasticsearchClient.count(any(Function.class))).thenReturn(count(2));
+
+        assertThatThrownBy(() -> loadElasticsearchIndex.completeMigration(3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("holds 2 of 3 sessions");
+        assertThat(loadElasticsearchIndex.isMigrating()).isTrue();
+        assertThat(loadElasticsearchIndex.getWriteTargets()).containsExactly("chat-sessions-write", "chat-sessions-v2");
+        verify(indices, never()).updateAliases(any(Function.class));
+    }
+
+    @Test
+    void completeIndexIsSwapped() throws Exception {
+        startMigration();
+        when(elasticsearchClient.count(any(Function.class))).thenReturn(count(3));
+
+        loadElasticsearchIndex.completeMigration(3);
+
+        assertThat(loadElasticsearchIndex.isMigrating()).isFalse();
+        assertThat(loadElasticsearchIndex.getWriteTargets()).containsExactly("chat-sessions-write");
+        verify(indices).updateAliases(any(Function.class));
+    }
+
+    // Aliases on version 1, version 2 is built next to it
+    private void startMigration() throws Exception {
+        when(indices.existsAlias(any(Function.class))).thenReturn(new BooleanResponse(true));
+        when(indices.getAlias(any(Function.class))).thenReturn(GetAliasResponse.of(g -> g
+                .result("chat-sessions-v1", IndexAliases.of(a -> a.aliases(Map.of())))));
+        when(indices.exists(any(ExistsRequest.class))).thenReturn(new BooleanResponse(false));
+        loadElasticsearchIndex.initializeIndices();
+        assertThat(loadElasticsearchIndex.isMigrating()).isTrue();
+    }
+
+    private static CountResponse count(long count) {
+        return CountResponse.of(c -> c.count(count).shards(s -> s.total(1).successful(1).failed(0)));
+    }
+}
@@ -0,0 +1,30 @@
+package com.docqa.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OllamaBackendPropertiesTest {
+
+    @Test
+    void bindsBackendsWrittenAsAYamlList() {
+        Binder binder = new Binder(new MapConfigurationPropertySource(Map.of(
+                "app.llm.backends[0]", "http://ollama-1:11434",
+                "app.llm.backends[1]", "http://ollama-2:11434")));
+
+        OllamaBackendProperties properties = binder.bindOrCreate("app.llm", OllamaBackendProperties.class);
+
+        assertThat(properties.backends()).containsExactly("http://ollama-1:11434", "http://ollama-2:11434");
+    }
+
+    @Test
+    void missingBackendsBindToAnEmptyList() {
+        Binder binder = new Binder(new MapConfigurationPropertySource(Map.of("app.llm.gateway.max-concurrent", "2")));
+
+        assertThat(binder.bindOrCreate("app.llm", OllamaBackendProperties.class).backends()).isEmpty();
+    }
+}
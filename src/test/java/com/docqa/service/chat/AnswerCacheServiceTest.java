@@ -0,0 +1,183 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.CachedAnswer;
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.Role;
+import com.docqa.repository.CachedAnswerRepository;
+import com.docqa.service.llm.ModelGateway;
+import com.docqa.service.llm.ModelPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnswerCacheServiceTest {
+
+    private static final String QUESTION = "What is the notice period?";
+    private static final String PARAPHRASE = "How long is the notice period?";
+    private static final String UNRELATED = "Who pays for shipping?";
+
+    // Fake embeddings: the paraphrase points almost the same way as the question, the unrelated one does not
+    private static final Map<String, float[]> EMBEDDINGS = Map.of(
+            QUESTION, new float[]{1f, 0f, 0f},
+            PARAPHRASE, new float[]{0.98f, 0.15f, 0f},
+            UNRELATED, new float[]{0.1f, 0f, 1f});
+
+    @Mock
+    private CachedAnswerRepository cachedAnswerRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private EmbeddingModel embeddingModel;
+    @Mock
+    private IndexOperations indexOps;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ModelGateway modelGateway;
+
+    @BeforeEach
+    void setUp() {
+        modelGateway = new ModelGateway(meterRegistry, 1, 1, Duration.ofSeconds(1), Duration.ofSeconds(1));
+        lenient().when(embeddingModel.embed(anyString())).thenAnswer(invocation -> EMBEDDINGS.get(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    void paraphrasedOpeningQuestionIsServedFromTheSemanticTier() {
+        AnswerCacheService cache = answerCache(Duration.ofHours(1));
+        cache.store(cache.lookup(session(QUESTION), QUESTION), "Ninety days.");
+
+        assertThat(cache.lookup(session(PARAPHRASE), PARAPHRASE).answer()).isEqualTo("Ninety days.");
+        assertThat(cache.lookup(session(UNRELATED), UNRELATED).isHit()).isFalse();
+    }
+
+    @Test
+    void everyLookupCountsExactlyOneOutcome() {
+        AnswerCacheService cache = answerCache(Duration.ofHours(1));
+        cache.store(cache.lookup(session(QUESTION), QUESTION), "Ninety days.");
+        cache.lookup(session(QUESTION), QUESTION);
+        cache.lookup(session(PARAPHRASE), PARAPHRASE);
+        cache.lookup(session(UNRELATED), UNRELATED);
+
+        assertThat(count("miss", null)).isEqualTo(2);
+        assertThat(count("hit", "memory")).isEqualTo(1);
+        assertThat(count("hit", "semantic")).isEqualTo(1);
+    }
+
+    @Test
+    void precomputedEntryIsServedWithoutCountingALookup() {
+        AnswerCacheService cache = answerCache(Duration.ofHours(1));
+        cache.store(cache.entryFor(session(QUESTION), QUESTION), "Ninety days.");
+        assertThat(count("miss", null)).isZero();
+
+        assertThat(cache.lookup(session(QUESTION), QUESTION).answer()).isEqualTo("Ninety days.");
+        assertThat(cache.lookup(session(PARAPHRASE), PARAPHRASE).answer()).isEqualTo("Ninety days.");
+        assertThat(count("miss", null)).isZero();
+    }
+
+    @Test
+    void semanticEntriesExpireWithTheAnswerTtl() throws InterruptedException {
+        AnswerCacheService cache = answerCache(Duration.ofMillis(30));
+        cache.store(cache.lookup(session(QUESTION), QUESTION), "Ninety days.");
+
+        Thread.sleep(60);
+
+        assertThat(cache.lookup(session(PARAPHRASE), PARAPHRASE).isHit()).isFalse();
+    }
+
+    @Test
+    void busyModelSkipsTheEmbeddingInsteadOfQueueing() {
+        AnswerCacheService cache = answerCache(Duration.ofHours(1));
+        modelGateway.acquire(ModelPriority.INTERACTIVE);
+
+        assertThat(cache.lookup(session(QUESTION), QUESTION).isHit()).isFalse();
+
+        verify(embeddingModel, never()).embed(anyString());
+        assertThat(modelGateway.activeRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void changedTtlRecreatesTheIndex() {
+        when(mongoTemplate.indexOps(CachedAnswer.class)).thenReturn(indexOps);
+        when(indexOps.getIndexInfo()).thenReturn(List.of(ttlIndex(Duration.ofHours(24))));
+
+        answerCache(Duration.ofHours(1), true).createTtlIndex();
+
+        InOrder inOrder = inOrder(indexOps);
+        inOrder.verify(indexOps).dropIndex("answer_ttl");
+        inOrder.verify(indexOps).createIndex(any(Index.class));
+    }
+
+    @Test
+    void unchangedTtlKeepsTheIndex() {
+        when(mongoTemplate.indexOps(CachedAnswer.class)).thenReturn(indexOps);
+        when(indexOps.getIndexInfo()).thenReturn(List.of(ttlIndex(Duration.ofHours(1))));
+
+        answerCache(Duration.ofHours(1), true).createTtlIndex();
+
+        verify(indexOps, never()).dropIndex(anyString());
+        verify(indexOps).createIndex(any(Index.class));
+    }
+
+    @Test
+    void mongoOutageAtStartupDoesNotFailTheBean() {
+        when(mongoTemplate.indexOps(CachedAnswer.class)).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        assertThatCode(() -> answerCache(Duration.ofHours(1), true).createTtlIndex()).doesNotThrowAnyException();
+    }
+
+    private AnswerCacheService answerCache(Duration ttl) {
+        return answerCache(ttl, false);
+    }
+
+    private AnswerCacheService answerCache(Duration ttl, boolean mongoEnabled) {
+        SemanticAnswerCache semanticAnswerCache = new SemanticAnswerCache(embeddingModel, modelGateway, true, 0.92, 10, 10, ttl);
+        return new AnswerCacheService(cachedAnswerRepository, mongoTemplate, semanticAnswerCache, meterRegistry,
+                true, mongoEnabled, 1_000_000, ttl);
+    }
+
+    private static IndexInfo ttlIndex(Duration expireAfter) {
+        return IndexInfo.indexInfoOf(new Document("name", "answer_ttl")
+                .append("key", new Document("createdAt", 1))
+                .append("expireAfterSeconds", expireAfter.getSeconds()));
+    }
+
+    private double count(String result, String tier) {
+        return meterRegistry.find("answer.cache.requests").tag("result", result).counters().stream()
+                .filter(counter -> tier == null || tier.equals(counter.getId().getTag("tier")))
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private static ChatSession session(String question) {
+        ChatSession session = new ChatSession("doc-1", "contract.pdf", "c0ffee");
+        session.addMessage(new ChatMessage(Role.user, question));
+        return session;
+    }
+}
@@ -0,0 +1,221 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.Role;
+import com.docqa.repository.ChatSessionRepository;
+import com.docqa.repository.DocumentRepository;
+import com.docqa.service.document.DocumentInsightService;
+import com.docqa.service.elasticsearch.ElasticsearchSyncService;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.ModelRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
+class ChatServiceTest {
+
+    private static final String SESSION_ID = "session-1";
+
+    @Mock
+    private ChatSessionRepository chatSessionRepository;
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private ModelRouter modelRouter;
+    @Mock
+    private ElasticsearchSyncService elasticsearchSyncService;
+    @Mock
+    private ChatPromptService chatPromptService;
+    @Mock
+    private AnswerCacheService answerCacheService;
+    @Mock
+    private ConversationMemoryService conversationMemoryService;
+    @Mock
+    private DocumentInsightService documentInsightService;
+
+    private ChatService chatService;
+
+    @BeforeEach
+    void setUp() {
+        chatService = new ChatService(chatSessionRepository, documentRepository, modelRouter, elasticsearchSyncService,
+                chatPromptService, answerCacheService, conversationMemoryService, documentInsightService, 4, 8, Duration.ofSeconds(5));
+        when(documentInsightService.findPrecomputedAnswer(any(), anyString())).thenReturn(Optional.empty());
+        when(answerCacheService.lookup(any(), anyString())).thenReturn(new AnswerCacheService.Lookup("key", "c0ffee", "q", null, null));
+        when(chatPromptService.buildPrompt(any(), anyString())).thenReturn("prompt");
+    }
+
+    @Test
+    void turnIsAnsweredAgainWhenAnotherTurnLandsFirst() {
+        when(chatSessionRepository.findWithRecentMessages(eq(SESSION_ID), anyInt()))
+                .thenReturn(Optional.of(session(3L)), Optional.of(session(4L)));
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID))).thenReturn("stale answer", "fresh answer");
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(3L), any()))
+                .thenThrow(new OptimisticLockingFailureException("changed"));
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(4L), any())).thenReturn(session(5L));
+
+        String answer = chatService.chat(SESSION_ID, "What is the notice period?", ModelPriority.INTERACTIVE);
+
+        assertThat(answer).isEqualTo("fresh answer");
+        verify(elasticsearchSyncService, times(1)).syncSession(any());
+    }
+
+    @Test
+    void persistentConflictIsReportedInsteadOfLosingTheOtherTurn() {
+        when(chatSessionRepository.findWithRecentMessages(eq(SESSION_ID), anyInt())).thenAnswer(invocation -> Optional.of(session(3L)));
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID))).thenReturn("answer");
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(3L), any()))
+                .thenThrow(new OptimisticLockingFailureException("changed"));
+
+        assertThatThrownBy(() -> chatService.chat(SESSION_ID, "What is the notice period?", ModelPriority.INTERACTIVE))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(chatSessionRepository, times(3)).appendMessages(eq(SESSION_ID), eq(3L), any());
+    }
+
+    @Test
+    void batchIsAppendedOnTheLatestVersionWhenATurnLandsDuringIt() {
+        when(chatSessionRepository.findWithRecentMessages(eq(SESSION_ID), anyInt()))
+                .thenReturn(Optional.of(session(3L)), Optional.of(session(4L)));
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID)))
+                .thenAnswer(invocation -> "answer to " + invocation.getArgument(0));
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(3L), any()))
+                .thenThrow(new OptimisticLockingFailureException("changed"));
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(4L), any())).thenReturn(session(5L));
+
+        List<ChatService.BatchAnswer> answers = chatService.chatBatch(SESSION_ID, List.of("Q0", "Q1"))
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertThat(answers).hasSize(2).allSatisfy(answer -> assertThat(answer.error()).isNull());
+        ArgumentCaptor<List<ChatMessage>> appended = ArgumentCaptor.forClass(List.class);
+        verify(chatSessionRepository).appendMessages(eq(SESSION_ID), eq(4L), appended.capture());
+        assertThat(appended.getValue()).extracting(ChatMessage::getContent)
+                .containsExactly("Q0", "answer to Q0", "Q1", "answer to Q1");
+        verify(elasticsearchSyncService, times(1)).syncSession(any());
+    }
+
+    @Test
+    void streamedTokensArePersistedAsOneAnswer() {
+        when(chatSessionRepository.findWithRecentMessages(eq(SESSION_ID), anyInt())).thenReturn(Optional.of(session(3L)));
+        when(modelRouter.stream(anyString(), anyString(), eq(SESSION_ID))).thenReturn(Flux.just("The notice ", "period is 30 days"));
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(3L), any())).thenReturn(session(4L));
+
+        List<String> tokens = chatService.streamChat(SESSION_ID, "What is the notice period?")
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertThat(tokens).containsExactly("The notice ", "period is 30 days");
+        ArgumentCaptor<List<ChatMessage>> appended = ArgumentCaptor.forClass(List.class);
+        verify(chatSessionRepository).appendMessages(eq(SESSION_ID), eq(3L), appended.capture());
+        assertThat(appended.getValue()).extracting(ChatMessage::getContent)
+                .containsExactly("What is the notice period?", "The notice period is 30 days");
+        verify(answerCacheService).store(any(), eq("The notice period is 30 days"));
+    }
+
+    @Test
+    void firstBatchQuestionIsAnsweredBeforeTheRestStart() {
+        stubBatchSession();
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID))).thenAnswer(invocation -> {
+            String question = invocation.getArgument(0);
+            events.add("start " + question);
+            Thread.sleep(question.equals("Q0") ? 200 : 10);
+            events.add("end " + question);
+            return "answer to " + question;
+        });
+
+        List<ChatService.BatchAnswer> answers = chatService.chatBatch(SESSION_ID, List.of("Q0", "Q1", "Q2", "Q3"))
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertThat(answers).hasSize(4).allSatisfy(answer -> assertThat(answer.error()).isNull());
+        assertThat(events.subList(0, 2)).containsExactly("start Q0", "end Q0");
+    }
+
+    @Test
+    void concurrentBatchesShareTheQuestionLimit() {
+        chatService = new ChatService(chatSessionRepository, documentRepository, modelRouter, elasticsearchSyncService,
+                chatPromptService, answerCacheService, conversationMemoryService, documentInsightService, 4, 2, Duration.ofSeconds(10));
+        stubBatchSession();
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID))).thenAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return "answer";
+        });
+
+        List<String> questions = List.of("Q0", "Q1", "Q2", "Q3", "Q4");
+        List<List<ChatService.BatchAnswer>> batches = Flux.range(0, 3)
+                .flatMap(batch -> chatService.chatBatch(SESSION_ID, questions).collectList())
+                .collectList().block(Duration.ofSeconds(10));
+
+        assertThat(batches).hasSize(3).allSatisfy(answers ->
+                assertThat(answers).hasSize(5).allSatisfy(answer -> assertThat(answer.error()).isNull()));
+        assertThat(maxActive.get()).isEqualTo(2);
+    }
+
+    @Test
+    void batchQuestionThatCannotStartInTimeFailsAlone() throws Exception {
+        chatService = new ChatService(chatSessionRepository, documentRepository, modelRouter, elasticsearchSyncService,
+                chatPromptService, answerCacheService, conversationMemoryService, documentInsightService, 4, 1, Duration.ofMillis(100));
+        stubBatchSession();
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch releaseSlow = new CountDownLatch(1);
+        when(modelRouter.generate(anyString(), anyString(), any(), eq(SESSION_ID))).thenAnswer(invocation -> {
+            if (invocation.getArgument(0).equals("slow")) {
+                slowStarted.countDown();
+                assertThat(releaseSlow.await(10, TimeUnit.SECONDS)).isTrue();
+            }
+            return "answer";
+        });
+
+        var slowBatch = chatService.chatBatch(SESSION_ID, List.of("slow")).collectList().toFuture();
+        assertThat(slowStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        List<ChatService.BatchAnswer> blocked = chatService.chatBatch(SESSION_ID, List.of("fast"))
+                .collectList().block(Duration.ofSeconds(10));
+        releaseSlow.countDown();
+
+        assertThat(blocked).singleElement().satisfies(answer -> {
+            assertThat(answer.answer()).isNull();
+            assertThat(answer.error()).contains("Too many batch questions");
+        });
+        assertThat(slowBatch.get(10, TimeUnit.SECONDS)).singleElement()
+                .satisfies(answer -> assertThat(answer.answer()).isEqualTo("answer"));
+    }
+
+    private void stubBatchSession() {
+        when(chatSessionRepository.findWithRecentMessages(eq(SESSION_ID), anyInt())).thenAnswer(invocation -> Optional.of(session(3L)));
+        when(chatSessionRepository.appendMessages(eq(SESSION_ID), eq(3L), any())).thenAnswer(invocation -> session(4L));
+    }
+
+    private static ChatSession session(long version) {
+        List<ChatMessage> messages = new ArrayList<>(List.of(new ChatMessage(Role.user, "Hello"), new ChatMessage(Role.assistant, "Hi")));
+        return ChatSession.builder().id(SESSION_ID).documentId("doc-1").documentHash("c0ffee")
+                .messages(messages).messageCount(messages.size()).version(version).build();
+    }
+}
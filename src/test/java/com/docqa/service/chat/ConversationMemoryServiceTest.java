@@ -0,0 +1,142 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.Role;
+import com.docqa.repository.ChatSessionRepository;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.util.PromptBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationMemoryServiceTest {
+
+    private static final String SESSION_ID = "session-1";
+    private static final int KEEP_RECENT = 4;
+    private static final int REFRESH_EVERY = 4;
+    private static final int HISTORY_WINDOW = 10;
+
+    @Mock
+    private ChatSessionRepository chatSessionRepository;
+    @Mock
+    private OllamaService ollamaService;
+    @Mock
+    private ExecutorService summaryExecutor;
+
+    private ConversationMemoryService memoryService;
+
+    // What Mongo holds for the session
+    private final List<ChatMessage> stored = new ArrayList<>();
+    private final List<int[]> foldedRanges = new ArrayList<>();
+    private int summarizedCount;
+    private String summary;
+
+    @BeforeEach
+    void setUp() {
+        memoryService = new ConversationMemoryService(chatSessionRepository, ollamaService, summaryExecutor,
+                true, KEEP_RECENT, REFRESH_EVERY, 2000);
+
+        // Refreshes run inline, so each turn sees the summary left by the previous one
+        lenient().doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(summaryExecutor).execute(any());
+        lenient().when(chatSessionRepository.findMessageRange(eq(SESSION_ID), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int skip = invocation.getArgument(1);
+            int limit = invocation.getArgument(2);
+            foldedRanges.add(new int[]{skip, skip + limit});
+            return List.copyOf(stored.subList(skip, skip + limit));
+        });
+        lenient().when(ollamaService.generateText(anyString(), eq(ModelPriority.BACKGROUND), eq(SESSION_ID)))
+                .thenAnswer(invocation -> "summary of " + foldedRanges.getLast()[1] + " messages");
+        lenient().when(chatSessionRepository.updateSummary(eq(SESSION_ID), anyInt(), anyString(), anyInt())).thenAnswer(invocation -> {
+            if (invocation.<Integer>getArgument(1) != summarizedCount) {
+                return false;
+            }
+            summary = invocation.getArgument(2);
+            summarizedCount = invocation.getArgument(3);
+            return true;
+        });
+    }
+
+    @Test
+    void refreshRunsOnceEnoughMessagesLeaveTheRecentTurns() {
+        // 7 messages leave 3 beyond the 4 kept verbatim, the 8th completes a batch of 4
+        memoryService.refreshIfDue(persisted(7));
+        verify(summaryExecutor, never()).execute(any());
+
+        memoryService.refreshIfDue(persisted(8));
+        assertThat(foldedRanges).containsExactly(new int[]{0, 4});
+
+        // 3 more beyond the kept ones is not yet a batch, the 4th is
+        memoryService.refreshIfDue(persisted(11));
+        assertThat(foldedRanges).hasSize(1);
+        memoryService.refreshIfDue(persisted(12));
+        assertThat(foldedRanges).containsExactly(new int[]{0, 4}, new int[]{4, 8});
+    }
+
+    @Test
+    void everyEarlierMessageReachesThePromptExactlyOnce() {
+        for (int turn = 0; turn < 30; turn++) {
+            String question = "question " + turn;
+
+            // What ChatService loads for a turn: the latest stored messages plus the new question
+            int from = Math.max(0, stored.size() - HISTORY_WINDOW);
+            ChatSession loaded = ChatSession.builder().id(SESSION_ID)
+                    .messages(new ArrayList<>(stored.subList(from, stored.size())))
+                    .messageCount(stored.size())
+                    .summarizedMessageCount(summarizedCount == 0 ? null : summarizedCount)
+                    .conversationSummary(summary)
+                    .build();
+            loaded.addMessage(new ChatMessage(Role.user, question));
+
+            // Folded messages are only in the summary, every later one is in the window, none is missing or repeated
+            assertThat(PromptBuilder.historyWindow(loaded)).containsExactlyElementsOf(stored.subList(summarizedCount, stored.size()));
+
+            stored.add(new ChatMessage(Role.user, question));
+            stored.add(new ChatMessage(Role.assistant, "answer " + turn));
+            memoryService.refreshIfDue(persisted(stored.size()));
+        }
+
+        // Folded ranges are contiguous, so each message went into the summary exactly once
+        int expectedStart = 0;
+        for (int[] range : foldedRanges) {
+            assertThat(range[0]).isEqualTo(expectedStart);
+            expectedStart = range[1];
+        }
+        assertThat(summarizedCount).isEqualTo(expectedStart).isGreaterThan(0);
+        assertThat(stored.size() - summarizedCount).isBetween(KEEP_RECENT, KEEP_RECENT + REFRESH_EVERY + 1);
+    }
+
+    // The session as appendMessages returns it, after the turn landed
+    private ChatSession persisted(int messageCount) {
+        while (stored.size() < messageCount) {
+            stored.add(new ChatMessage(stored.size() % 2 == 0 ? Role.user : Role.assistant, "message " + stored.size()));
+        }
+        return ChatSession.builder().id(SESSION_ID)
+                .messageCount(messageCount)
+                .summarizedMessageCount(summarizedCount == 0 ? null : summarizedCount)
+                .conversationSummary(summary)
+                .build();
+    }
+}
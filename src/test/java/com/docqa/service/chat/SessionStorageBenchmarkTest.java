@@ -0,0 +1,101 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.Role;
+import org.bson.BsonBinaryReader;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Stored size and read cost of a session with and without the embedded document text, run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class SessionStorageBenchmarkTest {
+
+    private static final int PAGES = 200;
+    private static final int CHARS_PER_PAGE = 3000;
+    private static final int MESSAGES = 20;
+    private static final int READS = 2000;
+
+    private final DocumentCodec codec = new DocumentCodec();
+
+    @Test
+    void embeddedTextAgainstDocumentReference() {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        ChatSession session = new ChatSession("665f1c2e9b1d4a3f8c2e7b10", "contract.pdf", "c0ffee");
+        for (int i = 0; i < MESSAGES; i++) {
+            session.addMessage(new ChatMessage(i % 2 == 0 ? Role.user : Role.assistant,
+                    "Turn " + i + ": what does the agreement say about termination and notice periods for either party?"));
+        }
+
+        Document referenced = new Document();
+        converter.write(session, referenced);
+        Document embedded = new Document(referenced).append("extractedText", documentText());
+
+        byte[] referencedBytes = bytes(referenced);
+        byte[] embeddedBytes = bytes(embedded);
+        medianReadNanos(converter, referencedBytes);
+        medianReadNanos(converter, embeddedBytes);
+        long referencedNanos = medianReadNanos(converter, referencedBytes);
+        long embeddedNanos = medianReadNanos(converter, embeddedBytes);
+
+        assertThat(referencedBytes.length).isLessThan(embeddedBytes.length);
+        System.out.printf("Session with %d messages on a %d-page document: embedded text %d bytes, reference only %d bytes (%.1fx smaller)%n",
+                MESSAGES, PAGES, embeddedBytes.length, referencedBytes.length, (double) embeddedBytes.length / referencedBytes.length);
+        System.out.printf("Decode and map one session read: embedded text %.1fus, reference only %.1fus%n",
+                embeddedNanos / 1000.0, referencedNanos / 1000.0);
+        System.out.printf("Wire time per session read at 1 Gbit/s: embedded text %.2fms, reference only %.3fms%n",
+                embeddedBytes.length * 8 / 1e6, referencedBytes.length * 8 / 1e6);
+    }
+
+    private byte[] bytes(Document document) {
+        ByteBuffer buffer = new RawBsonDocument(document, codec).getByteBuffer().asNIO();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    // What a findById pays on the client once the bytes have arrived, network transfer not included
+    private long medianReadNanos(MappingMongoConverter converter, byte[] bytes) {
+        long[] nanos = new long[READS];
+        for (int read = 0; read < READS; read++) {
+            long startTime = System.nanoTime();
+            Document document = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+            assertThat(converter.read(ChatSession.class, document).getMessages()).hasSize(MESSAGES);
+            nanos[read] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(nanos);
+        return nanos[READS / 2];
+    }
+
+    private static String documentText() {
+        StringBuilder text = new StringBuilder(PAGES * CHARS_PER_PAGE);
+        String sentence = "The supplier shall deliver the goods within thirty days of the order and notify the buyer of any delay. ";
+        for (int page = 1; page <= PAGES; page++) {
+            int pageStart = text.length();
+            while (text.length() - pageStart < CHARS_PER_PAGE) {
+                text.append(sentence);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.docqa.service.chat;
+
+import com.docqa.model.ChatSession;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.service.retrieval.RetrievalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionWarmUpServiceTest {
+
+    @Mock
+    private ChatPromptService chatPromptService;
+    @Mock
+    private OllamaService ollamaService;
+    @Mock
+    private RetrievalService retrievalService;
+
+    private SessionWarmUpService sessionWarmUpService;
+    private ChatSession session;
+
+    @BeforeEach
+    void setUp() {
+        sessionWarmUpService = new SessionWarmUpService(chatPromptService, ollamaService, retrievalService, true, Duration.ofMinutes(30));
+        session = new ChatSession("doc-1", "contract.pdf", "c0ffee");
+        session.setId("session-1");
+    }
+
+    @Test
+    void retrievalSessionsAreNotWarmedUp() {
+        when(retrievalService.usesRetrieval("doc-1")).thenReturn(true);
+
+        sessionWarmUpService.warmUp(session);
+
+        verify(ollamaService, never()).warmUp(anyString(), anyString());
+    }
+
+    @Test
+    void warmUpSkippedOnABusyModelIsTriedAgainNextTime() {
+        when(chatPromptService.buildPrefix(session)).thenReturn("document prefix");
+        when(ollamaService.warmUp("document prefix", "session-1")).thenReturn(false, true);
+
+        sessionWarmUpService.warmUp(session);
+        sessionWarmUpService.warmUp(session);
+        sessionWarmUpService.warmUp(session);
+
+        // Skipped, then warmed, then still warm
+        verify(ollamaService, times(2)).warmUp("document prefix", "session-1");
+    }
+}
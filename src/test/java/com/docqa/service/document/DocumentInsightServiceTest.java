@@ -0,0 +1,133 @@
+package com.docqa.service.document;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentEntity;
+import com.docqa.model.Role;
+import com.docqa.model.SuggestedQuestion;
+import com.docqa.service.chat.AnswerCacheService;
+import com.docqa.service.chat.ChatPromptService;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentInsightServiceTest {
+
+    @Mock
+    private DocumentSummaryService documentSummaryService;
+    @Mock
+    private ChatPromptService chatPromptService;
+    @Mock
+    private AnswerCacheService answerCacheService;
+    @Mock
+    private OllamaService ollamaService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ExecutorService insightExecutor;
+
+    @Test
+    void finishedInsightsAreReadFromMongoOnce() {
+        DocumentInsightService insightService = insightService(true);
+        when(mongoTemplate.findOne(any(Query.class), eq(DocumentEntity.class))).thenReturn(document("The agreement covers supply terms.",
+                List.of(new SuggestedQuestion("What is the notice period?", "Ninety days."))));
+
+        assertThat(insightService.findPrecomputedAnswer(opening("Summarize this document"), "Summarize this document"))
+                .contains("The agreement covers supply terms.");
+        assertThat(insightService.findPrecomputedAnswer(opening("What is the notice period?"), "What is the notice period?"))
+                .contains("Ninety days.");
+        assertThat(insightService.findPrecomputedAnswer(opening("Who signed it?"), "Who signed it?")).isEmpty();
+
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(DocumentEntity.class));
+    }
+
+    @Test
+    void blankSummaryIsNotServedOrCached() {
+        DocumentInsightService insightService = insightService(true);
+        when(mongoTemplate.findOne(any(Query.class), eq(DocumentEntity.class))).thenReturn(document("", null));
+
+        assertThat(insightService.findPrecomputedAnswer(opening("Summarize"), "Summarize")).isEmpty();
+        assertThat(insightService.findPrecomputedAnswer(opening("Summarize"), "Summarize")).isEmpty();
+
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(DocumentEntity.class));
+    }
+
+    @Test
+    void disabledPrecomputeNeverReadsTheDocument() {
+        DocumentInsightService insightService = insightService(false);
+
+        assertThat(insightService.findPrecomputedAnswer(opening("Summarize"), "Summarize")).isEmpty();
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void blankSummaryStopsPrecomputeBeforeAnyQuestion() {
+        DocumentInsightService insightService = insightService(true);
+        runInline();
+        when(documentSummaryService.summarize("doc-1")).thenReturn("  ");
+
+        insightService.precomputeIfMissing(document(null, null));
+
+        verifyNoInteractions(ollamaService, answerCacheService, mongoTemplate);
+    }
+
+    @Test
+    void precomputedAnswersAreCachedWithoutCountingLookups() {
+        DocumentInsightService insightService = insightService(true);
+        runInline();
+        when(documentSummaryService.summarize("doc-1")).thenReturn("The agreement covers supply terms.");
+        when(ollamaService.generateText(anyString(), eq(ModelPriority.BACKGROUND), eq("doc-1")))
+                .thenReturn("1. What is the notice period?\nNot a question", "Ninety days.");
+        when(chatPromptService.buildPrompt(any(), anyString())).thenReturn("prompt");
+        AnswerCacheService.Lookup entry = new AnswerCacheService.Lookup("key", "c0ffee", "What is the notice period?", null, null);
+        when(answerCacheService.entryFor(any(), eq("What is the notice period?"))).thenReturn(entry);
+
+        insightService.precomputeIfMissing(document(null, null));
+
+        verify(answerCacheService).store(entry, "Ninety days.");
+        verify(answerCacheService, never()).lookup(any(), anyString());
+    }
+
+    private void runInline() {
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(insightExecutor).execute(any());
+    }
+
+    private DocumentInsightService insightService(boolean enabled) {
+        return new DocumentInsightService(documentSummaryService, chatPromptService, answerCacheService, ollamaService,
+                mongoTemplate, insightExecutor, enabled, 3, 100);
+    }
+
+    private static DocumentEntity document(String summary, List<SuggestedQuestion> suggestedQuestions) {
+        return DocumentEntity.builder().id("doc-1").summary(summary).suggestedQuestions(suggestedQuestions).build();
+    }
+
+    private static ChatSession opening(String question) {
+        ChatSession session = new ChatSession("doc-1", "contract.pdf", "c0ffee");
+        session.addMessage(new ChatMessage(Role.user, question));
+        return session;
+    }
+}
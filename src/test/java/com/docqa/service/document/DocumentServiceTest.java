@@ -0,0 +1,140 @@
+package com.docqa.service.document;
+
+import com.docqa.model.DocumentEntity;
+import com.docqa.repository.DocumentRepository;
+import com.docqa.service.retrieval.RetrievalService;
+import com.docqa.util.BufferPool;
+import com.docqa.util.SpooledUpload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentServiceTest {
+
+    private static final int UPLOADS = 8;
+    private static final String FILE_HASH = "c0ffee";
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private PdfExtractionService pdfExtractionService;
+    @Mock
+    private DocumentTextService documentTextService;
+    @Mock
+    private RetrievalService retrievalService;
+    @Mock
+    private DocumentInsightService documentInsightService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private DocumentService documentService;
+
+    @BeforeEach
+    void setUp() {
+        documentService = new DocumentService(documentRepository, new BufferPool(1, 1024), pdfExtractionService,
+                documentTextService, retrievalService, documentInsightService, mongoTemplate, 4000);
+    }
+
+    @Test
+    void parallelUploadsOfTheSamePdfExtractOnce() throws Exception {
+        AtomicReference<DocumentEntity> stored = new AtomicReference<>();
+        Set<String> threadsLookedUp = ConcurrentHashMap.newKeySet();
+        CountDownLatch allLookedUp = new CountDownLatch(UPLOADS);
+
+        when(documentRepository.findFirstByFileHashOrderByIdAsc(FILE_HASH)).thenAnswer(invocation -> {
+            if (threadsLookedUp.add(Thread.currentThread().getName())) {
+                allLookedUp.countDown();
+            }
+            return Optional.ofNullable(stored.get());
+        });
+        when(documentRepository.insert(any(DocumentEntity.class))).thenAnswer(invocation -> {
+            DocumentEntity document = invocation.getArgument(0);
+            document.setId("doc-1");
+            stored.set(document);
+            return document;
+        });
+
+        // The extraction only finishes once every upload has missed the stored document
+        when(pdfExtractionService.extractPages(any())).thenAnswer(invocation -> {
+            assertThat(allLookedUp.await(10, TimeUnit.SECONDS)).isTrue();
+            return List.of("Page one text", "Page two text");
+        });
+
+        ExecutorService uploads = Executors.newFixedThreadPool(UPLOADS);
+        try {
+            List<Future<String>> documentIds = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                documentIds.add(uploads.submit(() -> documentService.storeDocument(upload(), () -> { })));
+            }
+            for (Future<String> documentId : documentIds) {
+                assertThat(documentId.get(10, TimeUnit.SECONDS)).isEqualTo("doc-1");
+            }
+        } finally {
+            uploads.shutdownNow();
+        }
+
+        verify(pdfExtractionService, times(1)).extractPages(any());
+        verify(documentRepository, times(1)).insert(any(DocumentEntity.class));
+    }
+
+    @Test
+    void textIsStoredBeforeTheDocumentCanBeFoundByHash() {
+        when(documentRepository.findFirstByFileHashOrderByIdAsc(FILE_HASH)).thenReturn(Optional.empty());
+        when(pdfExtractionService.extractPages(any())).thenReturn(List.of("Page one text"));
+        when(documentRepository.insert(any(DocumentEntity.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String documentId = documentService.storeDocument(upload(), () -> { });
+
+        InOrder inOrder = inOrder(documentTextService, documentRepository);
+        inOrder.verify(documentTextService).saveChunks(eq(documentId), any());
+        inOrder.verify(documentRepository).insert(any(DocumentEntity.class));
+    }
+
+    @Test
+    void concurrentInsertOnAnotherNodeReusesItsDocument() {
+        DocumentEntity other = DocumentEntity.builder().id("doc-other").fileHash(FILE_HASH).build();
+        when(documentRepository.findFirstByFileHashOrderByIdAsc(FILE_HASH))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(other));
+        when(pdfExtractionService.extractPages(any())).thenReturn(List.of("Page one text"));
+        when(documentRepository.insert(any(DocumentEntity.class))).thenThrow(new DuplicateKeyException("fileHash"));
+
+        assertThat(documentService.storeDocument(upload(), () -> { })).isEqualTo("doc-other");
+
+        // The text stored under the losing id is removed again
+        ArgumentCaptor<String> ownId = ArgumentCaptor.forClass(String.class);
+        verify(documentTextService).saveChunks(ownId.capture(), any());
+        verify(documentTextService).deleteChunks(ownId.getValue());
+    }
+
+    private static SpooledUpload upload() {
+        return new SpooledUpload(Path.of("unused.pdf"), "report.pdf", "application/pdf", FILE_HASH, 1024);
+    }
+}
@@ -0,0 +1,103 @@
+package com.docqa.service.document;
+
+import com.docqa.config.IngestionConfig;
+import com.docqa.model.DocumentChunk;
+import com.docqa.model.DocumentEntity;
+import com.docqa.repository.DocumentRepository;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.service.llm.OllamaService;
+import com.docqa.util.PromptBudget;
+import com.docqa.util.TokenEstimator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentSummaryServiceTest {
+
+    private static final String DOCUMENT_ID = "doc-1";
+    private static final int CHUNK_CHARS = 300;
+
+    @Mock
+    private DocumentRepository documentRepository;
+    @Mock
+    private DocumentTextService documentTextService;
+    @Mock
+    private OllamaService ollamaService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final List<DocumentChunk> stored = new ArrayList<>();
+    private ExecutorService summaryExecutor;
+    private DocumentSummaryService documentSummaryService;
+
+    @BeforeEach
+    void setUp() {
+        // One worker and one queue slot, so a ten section document fills the queue
+        summaryExecutor = new IngestionConfig().documentSummaryExecutor(1, 1, false);
+
+        // 800 tokens per section at one character per token, two 300 character chunks fit in one
+        documentSummaryService = new DocumentSummaryService(documentRepository, documentTextService, ollamaService, mongoTemplate,
+                summaryExecutor, new PromptBudget(1200, 200, 0.3), TokenEstimator.charsPerToken(1.0));
+        when(documentRepository.findById(DOCUMENT_ID))
+                .thenReturn(Optional.of(DocumentEntity.builder().id(DOCUMENT_ID).fileName("report.pdf").build()));
+        when(documentTextService.streamChunks(DOCUMENT_ID)).thenAnswer(invocation -> new ArrayList<>(stored).stream());
+    }
+
+    @AfterEach
+    void tearDown() {
+        summaryExecutor.shutdownNow();
+    }
+
+    @Test
+    void blankSummaryIsReturnedButNeverStored() {
+        assertThat(documentSummaryService.summarize(DOCUMENT_ID)).isEmpty();
+        assertThat(documentSummaryService.summarize(DOCUMENT_ID)).isEmpty();
+
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(DocumentEntity.class));
+        verify(documentTextService, times(2)).streamChunks(DOCUMENT_ID);
+    }
+
+    @Test
+    void sectionsArePackedUpToTheBudgetAndSummarizedOffTheCallerThread() {
+        IntStream.range(0, 20).forEach(sequence -> stored.add(DocumentChunk.builder()
+                .documentId(DOCUMENT_ID).sequence(sequence).pageNumber(sequence + 1).text("x".repeat(CHUNK_CHARS)).build()));
+        Set<Thread> modelThreads = ConcurrentHashMap.newKeySet();
+        when(ollamaService.generateText(anyString(), eq(ModelPriority.BACKGROUND), eq(DOCUMENT_ID))).thenAnswer(invocation -> {
+            modelThreads.add(Thread.currentThread());
+            return "Partial summary.";
+        });
+
+        assertThat(documentSummaryService.summarize(DOCUMENT_ID)).isEqualTo("Partial summary.");
+
+        // 20 chunks in 10 sections of two, then one merge of the 10 partial summaries
+        verify(ollamaService, times(10)).generateText(startsWith("You are summarizing part"), eq(ModelPriority.BACKGROUND), eq(DOCUMENT_ID));
+        verify(ollamaService, times(11)).generateText(anyString(), eq(ModelPriority.BACKGROUND), eq(DOCUMENT_ID));
+        assertThat(modelThreads).doesNotContain(Thread.currentThread());
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(DocumentEntity.class));
+    }
+}
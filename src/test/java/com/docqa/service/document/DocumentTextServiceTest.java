@@ -0,0 +1,73 @@
+package com.docqa.service.document;
+
+import com.docqa.model.DocumentChunk;
+import com.docqa.repository.DocumentChunkRepository;
+import com.docqa.service.retrieval.RetrievalService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentTextServiceTest {
+
+    @Mock
+    private DocumentChunkRepository documentChunkRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private RetrievalService retrievalService;
+
+    private final List<DocumentChunk> stored = new ArrayList<>();
+    private DocumentTextService documentTextService;
+
+    @BeforeEach
+    void setUp() {
+        documentTextService = new DocumentTextService(documentChunkRepository, mongoTemplate, retrievalService, 1_000_000);
+        when(documentChunkRepository.streamByDocumentIdOrderBySequenceAsc("doc-1"))
+                .thenAnswer(invocation -> new ArrayList<>(stored).stream());
+    }
+
+    @Test
+    void textReadBeforeTheChunksAreWrittenIsNotCached() {
+        assertThat(documentTextService.getText("doc-1")).isEmpty();
+
+        stored.add(chunk(0, "Termination requires ninety days notice."));
+        assertThat(documentTextService.getText("doc-1")).isEqualTo("Termination requires ninety days notice.");
+        assertThat(documentTextService.getText("doc-1")).isEqualTo("Termination requires ninety days notice.");
+
+        // Missed once while empty, loaded once, then served from the cache
+        verify(documentChunkRepository, times(2)).streamByDocumentIdOrderBySequenceAsc("doc-1");
+    }
+
+    @Test
+    void savingOrDeletingChunksDropsTheCachedText() {
+        stored.add(chunk(0, "First version."));
+        assertThat(documentTextService.getText("doc-1")).isEqualTo("First version.");
+
+        stored.clear();
+        stored.add(chunk(0, "Second version."));
+        documentTextService.saveChunks("doc-1", List.of(chunk(0, "Second version.")));
+        assertThat(documentTextService.getText("doc-1")).isEqualTo("Second version.");
+
+        stored.clear();
+        documentTextService.deleteChunks("doc-1");
+        assertThat(documentTextService.getText("doc-1")).isEmpty();
+        verify(retrievalService, times(2)).evict("doc-1");
+    }
+
+    private static DocumentChunk chunk(int sequence, String text) {
+        return DocumentChunk.builder().documentId("doc-1").sequence(sequence).pageNumber(1).text(text).build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.docqa.service.document;
+
+import com.docqa.dto.IngestionJobResponse;
+import com.docqa.exception.ResourceNotFoundException;
+import com.docqa.exception.ServiceUnavailableException;
+import com.docqa.model.ChatSession;
+import com.docqa.model.IngestionStage;
+import com.docqa.service.chat.ChatService;
+import com.docqa.service.llm.ModelPriority;
+import com.docqa.util.SpooledUpload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IngestionJobServiceTest {
+
+    @Mock
+    private DocumentService documentService;
+    @Mock
+    private ChatService chatService;
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private ExecutorService ingestionExecutor;
+
+    @Test
+    void stagesArePublishedInOrderWhenTheWorkerFinishesFirst() {
+        MockMultipartFile file = new MockMultipartFile("file", "report.pdf", "application/pdf", new byte[16]);
+        when(documentService.spoolUpload(file))
+                .thenReturn(new SpooledUpload(Path.of("unused.pdf"), "report.pdf", "application/pdf", "c0ffee", 16));
+        when(documentService.storeDocument(any(), any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return "doc-1";
+        });
+        ChatSession session = new ChatSession("doc-1", "report.pdf", "c0ffee");
+        session.setId("session-1");
+        when(chatService.startChatSession("doc-1")).thenReturn(session);
+        when(chatService.chat("session-1", "Summarize", ModelPriority.BACKGROUND)).thenReturn("A summary");
+
+        // The worker runs the whole job before submit returns, the worst case for event ordering
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(ingestionExecutor).execute(any());
+
+        new IngestionJobService(documentService, chatService, messagingTemplate, ingestionExecutor, Duration.ofMinutes(30))
+                .submit(file, "Summarize");
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, atLeastOnce()).convertAndSend(anyString(), events.capture());
+        List<IngestionStage> stages = events.getAllValues().stream()
+                .map(event -> ((IngestionJobResponse) event).stage())
+                .toList();
+        assertThat(stages).containsExactly(IngestionStage.HASHED, IngestionStage.QUEUED, IngestionStage.EXTRACTED, IngestionStage.SAVED,
+                IngestionStage.SESSION_READY, IngestionStage.ANSWERED, IngestionStage.COMPLETED);
+    }
+
+    @Test
+    void rejectedJobEndsWithFailedBeforeItIsForgotten() {
+        MockMultipartFile file = new MockMultipartFile("file", "report.pdf", "application/pdf", new byte[16]);
+        when(documentService.spoolUpload(file))
+                .thenReturn(new SpooledUpload(Path.of("unused.pdf"), "report.pdf", "application/pdf", "c0ffee", 16));
+        doThrow(new RejectedExecutionException("full")).when(ingestionExecutor).execute(any());
+
+        IngestionJobService jobService = new IngestionJobService(documentService, chatService, messagingTemplate,
+                ingestionExecutor, Duration.ofMinutes(30));
+        assertThatThrownBy(() -> jobService.submit(file, "Summarize")).isInstanceOf(ServiceUnavailableException.class);
+
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, atLeastOnce()).convertAndSend(anyString(), events.capture());
+        List<IngestionJobResponse> published = events.getAllValues().stream().map(IngestionJobResponse.class::cast).toList();
+        assertThat(published).extracting(IngestionJobResponse::stage)
+                .containsExactly(IngestionStage.HASHED, IngestionStage.QUEUED, IngestionStage.FAILED);
+        assertThat(published.getLast().error()).isEqualTo("Ingestion queue is full");
+        assertThatThrownBy(() -> jobService.getJob(published.getLast().jobId())).isInstanceOf(ResourceNotFoundException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.docqa.service.document;
+
+import com.docqa.util.MemoryBudget;
+import com.docqa.util.TestPdfs;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Serial against parallel extraction of a generated text-heavy PDF, run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class PdfExtractionBenchmarkTest {
+
+    private static final int PAGES = 600;
+    private static final int LINES_PER_PAGE = 45;
+    private static final int RUNS = 5;
+    private static final long MAX_MAIN_MEMORY = 64L * 1024 * 1024;
+
+    @TempDir
+    static Path tempDir;
+
+    private static Path pdfFile;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void generatePdf() throws IOException {
+        pdfFile = TestPdfs.generate(tempDir.resolve("benchmark.pdf"), PAGES, LINES_PER_PAGE);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @AfterAll
+    static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelSlicesAgainstSerialExtraction() {
+        PdfExtractionService serial = service(pool, Integer.MAX_VALUE);
+        PdfExtractionService parallel = service(pool, 1);
+
+        List<String> serialPages = serial.extractPages(pdfFile);
+        List<String> parallelPages = parallel.extractPages(pdfFile);
+        assertThat(parallelPages).isEqualTo(serialPages).hasSize(PAGES);
+
+        long serialMillis = medianMillis(() -> serial.extractPages(pdfFile));
+        long parallelMillis = medianMillis(() -> parallel.extractPages(pdfFile));
+        System.out.printf("PDF extraction, %d pages, %d workers: serial %dms, parallel %dms, speedup %.2fx%n",
+                PAGES, pool.getParallelism(), serialMillis, parallelMillis, (double) serialMillis / parallelMillis);
+
+        // One slice per 25 pages regardless of workers, each slice loading the whole document again
+        ForkJoinPool slicePerPageRange = new ForkJoinPool(Math.ceilDiv(PAGES, 25));
+        try {
+            PdfExtractionService perRange = service(slicePerPageRange, 1);
+            long perRangeMillis = medianMillis(() -> perRange.extractPages(pdfFile));
+            System.out.printf("PDF extraction, %d pages, one load per 25-page slice (%d loads): %dms%n",
+                    PAGES, slicePerPageRange.getParallelism(), perRangeMillis);
+        } finally {
+            slicePerPageRange.shutdown();
+        }
+    }
+
+    private static PdfExtractionService service(ForkJoinPool workers, int parallelPageThreshold) {
+        return new PdfExtractionService(workers, new MemoryBudget(64 * MAX_MAIN_MEMORY), parallelPageThreshold, 25,
+                ExtractionMemoryPolicy.MIXED, MAX_MAIN_MEMORY);
+    }
+
+    private static long medianMillis(Supplier<List<String>> extraction) {
+        long[] millis = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long startTime = System.nanoTime();
+            extraction.get();
+            millis[run] = (System.nanoTime() - startTime) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+}
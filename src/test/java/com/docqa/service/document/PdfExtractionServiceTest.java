@@ -0,0 +1,64 @@
+package com.docqa.service.document;
+
+import com.docqa.util.MemoryBudget;
+import com.docqa.util.TestPdfs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class PdfExtractionServiceTest {
+
+    private static final long MAX_MAIN_MEMORY = 1024 * 1024;
+    private static final int PAGES = 40;
+
+    @TempDir
+    Path tempDir;
+
+    private ForkJoinPool pool;
+    private Path pdfFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pool = new ForkJoinPool(4);
+        pdfFile = TestPdfs.generate(tempDir.resolve("report.pdf"), PAGES, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelSlicesUnderABudgetForOneHandleKeepPageOrder() {
+        MemoryBudget budget = new MemoryBudget(MAX_MAIN_MEMORY);
+        PdfExtractionService service = new PdfExtractionService(pool, budget, 10, 5, ExtractionMemoryPolicy.MIXED, MAX_MAIN_MEMORY);
+
+        List<String> pages = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> service.extractPages(pdfFile));
+
+        assertThat(pages).hasSize(PAGES);
+        for (int page = 1; page <= PAGES; page++) {
+            assertThat(pages.get(page - 1)).contains("Page " + page + " line 0");
+        }
+        assertThat(budget.availableBytes()).isEqualTo(MAX_MAIN_MEMORY);
+    }
+
+    @Test
+    void tempFileOnlyExtractionIsNotChargedToTheBudget() {
+        MemoryBudget budget = new MemoryBudget(MAX_MAIN_MEMORY);
+        budget.acquire(MAX_MAIN_MEMORY);
+        PdfExtractionService service = new PdfExtractionService(pool, budget, 10, 5, ExtractionMemoryPolicy.TEMP_FILE_ONLY, MAX_MAIN_MEMORY);
+
+        List<String> pages = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> service.extractPages(pdfFile));
+
+        assertThat(pages).hasSize(PAGES);
+    }
+}
@@ -0,0 +1,106 @@
+package com.docqa.service.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.docqa.model.elasticsearch.ChatSessionDocument;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ElasticsearchBulkIndexerTest {
+
+    private static final String TARGET = "chat-sessions-write";
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    private ElasticsearchBulkIndexer bulkIndexer;
+
+    @BeforeEach
+    void setUp() {
+        bulkIndexer = new ElasticsearchBulkIndexer(elasticsearchClient, new SimpleMeterRegistry(), () -> List.of(TARGET),
+                500, 10000, Duration.ofMinutes(1), 2, Duration.ofMillis(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkIndexer.close();
+    }
+
+    @Test
+    void documentsAreVersionedByMessageCountAndOlderCopiesAreSkipped() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(b -> b.errors(true).took(1)
+                .items(item("s1", 200, null), item("s2", 409, "version_conflict_engine_exception"))));
+
+        List<ChatSessionDocument> failed = bulkIndexer.indexBatch(List.of(document("s1"), document("s2")), List.of(TARGET));
+
+        // The conflict means Elasticsearch already holds a copy with more messages
+        assertThat(failed).isEmpty();
+        ArgumentCaptor<BulkRequest> request = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(request.capture());
+        assertThat(request.getValue().operations()).allSatisfy(operation -> {
+            assertThat(operation.isIndex()).isTrue();
+            assertThat(operation.index().version()).isEqualTo(2L);
+            assertThat(operation.index().versionType()).isEqualTo(VersionType.ExternalGte);
+        });
+    }
+
+    @Test
+    void liveWritesAreVersionedToo() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(b -> b.errors(false).took(1)
+                .items(item("s1", 200, null))));
+
+        bulkIndexer.enqueue(document("s1"));
+        bulkIndexer.close();
+
+        ArgumentCaptor<BulkRequest> request = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(request.capture());
+        assertThat(request.getValue().operations()).singleElement()
+                .satisfies(operation -> assertThat(operation.index().versionType()).isEqualTo(VersionType.ExternalGte));
+    }
+
+    @Test
+    void deadLetteredDocumentsAreReturned() throws Exception {
+        when(elasticsearchClient.bulk(any(BulkRequest.class)))
+                .thenReturn(BulkResponse.of(b -> b.errors(true).took(1)
+                        .items(item("s1", 201, null), item("s2", 400, "mapper_parsing_exception"), item("s3", 503, "unavailable"))))
+                .thenReturn(BulkResponse.of(b -> b.errors(true).took(1).items(item("s3", 503, "unavailable"))));
+
+        List<ChatSessionDocument> failed = bulkIndexer.indexBatch(
+                List.of(document("s1"), document("s2"), document("s3")), List.of(TARGET));
+
+        assertThat(failed).extracting(ChatSessionDocument::getId).containsExactly("s2", "s3");
+    }
+
+    private static BulkResponseItem item(String id, int status, String errorType) {
+        return BulkResponseItem.of(i -> {
+            i.operationType(OperationType.Index).index("chat-sessions-v1").id(id).status(status);
+            if (errorType != null) {
+                i.error(e -> e.type(errorType).reason(errorType));
+            }
+            return i;
+        });
+    }
+
+    private static ChatSessionDocument document(String id) {
+        return ChatSessionDocument.builder().id(id).documentName("report.pdf").messageCount(2).build();
+    }
+}
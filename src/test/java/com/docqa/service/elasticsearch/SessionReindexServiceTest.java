@@ -0,0 +1,150 @@
+package com.docqa.service.elasticsearch;
+
+import com.docqa.config.LoadElasticsearchIndex;
+import com.docqa.model.ChatSession;
+import com.docqa.model.ReindexCheckpoint;
+import com.docqa.repository.ReindexCheckpointRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SessionReindexServiceTest {
+
+    private static final String INDEX = "chat-sessions-v1";
+    private static final String WRITE_ALIAS = "chat-sessions-write";
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ElasticsearchSyncService elasticsearchSyncService;
+    @Mock
+    private LoadElasticsearchIndex loadElasticsearchIndex;
+    @Mock
+    private ReindexCheckpointRepository checkpointRepository;
+
+    private SessionReindexService reindexService;
+
+    @BeforeEach
+    void setUp() {
+        reindexService = new SessionReindexService(mongoTemplate, elasticsearchSyncService, loadElasticsearchIndex,
+                checkpointRepository, true, 2, 100, 2, false);
+        when(loadElasticsearchIndex.getVersionedIndex()).thenReturn(INDEX);
+        lenient().when(loadElasticsearchIndex.getWriteAlias()).thenReturn(WRITE_ALIAS);
+        when(checkpointRepository.findById(INDEX)).thenReturn(Optional.empty());
+        when(mongoTemplate.estimatedCount(ChatSession.class)).thenReturn(3L);
+        when(mongoTemplate.find(any(Query.class), eq(ChatSession.class)))
+                .thenReturn(List.of(session("s1"), session("s2")), List.of(session("s3")), List.of());
+    }
+
+    @Test
+    void checkpointStopsBeforeAPageWithDeadLetteredSessions() {
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(WRITE_ALIAS))).thenReturn(0, 1);
+
+        reindexService.reindex();
+
+        ArgumentCaptor<ReindexCheckpoint> saved = ArgumentCaptor.forClass(ReindexCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(saved.capture());
+        assertThat(saved.getValue().getLastSessionId()).isEqualTo("s2");
+        assertThat(saved.getValue().getProcessed()).isEqualTo(2);
+        assertThat(saved.getValue().getCompletedAt()).isNull();
+
+        SessionReindexService.Progress progress = reindexService.getProgress();
+        assertThat(progress.state()).isEqualTo(SessionReindexService.State.FAILED);
+        assertThat(progress.lastSessionId()).isEqualTo("s2");
+        assertThat(progress.error()).contains("1 of 1 sessions after s2");
+    }
+
+    @Test
+    void fullyIndexedRunCompletes() throws Exception {
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(WRITE_ALIAS))).thenReturn(0);
+
+        reindexService.reindex();
+
+        SessionReindexService.Progress progress = reindexService.getProgress();
+        assertThat(progress.state()).isEqualTo(SessionReindexService.State.COMPLETED);
+        assertThat(progress.processed()).isEqualTo(3);
+        assertThat(progress.lastSessionId()).isEqualTo("s3");
+        verify(loadElasticsearchIndex, never()).completeMigration(anyLong());
+    }
+
+    @Test
+    void finishedRunOnlyReadsSessionsCreatedSince() {
+        when(checkpointRepository.findById(INDEX)).thenReturn(Optional.of(ReindexCheckpoint.builder().id(INDEX)
+                .lastSessionId("s0").processed(40).completedAt(LocalDateTime.now().minusDays(1)).build()));
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(WRITE_ALIAS))).thenReturn(0);
+
+        reindexService.reindex();
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, atLeastOnce()).find(queries.capture(), eq(ChatSession.class));
+        assertThat(queries.getAllValues().getFirst().getQueryObject().toJson()).contains("\"$gt\": \"s0\"");
+        SessionReindexService.Progress progress = reindexService.getProgress();
+        assertThat(progress.state()).isEqualTo(SessionReindexService.State.COMPLETED);
+        assertThat(progress.processed()).isEqualTo(43);
+    }
+
+    @Test
+    void migrationIsNotSwappedAfterAFailedPage() throws Exception {
+        when(loadElasticsearchIndex.isMigrating()).thenReturn(true);
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(INDEX))).thenReturn(0, 1);
+
+        reindexService.reindexOnStartup();
+
+        assertThat(reindexService.getProgress().state()).isEqualTo(SessionReindexService.State.FAILED);
+        verify(loadElasticsearchIndex, never()).completeMigration(anyLong());
+    }
+
+    @Test
+    void migrationIsSwappedAgainstTheMongoSessionCount() throws Exception {
+        when(loadElasticsearchIndex.isMigrating()).thenReturn(true);
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(INDEX))).thenReturn(0);
+        when(mongoTemplate.count(any(Query.class), eq(ChatSession.class))).thenReturn(3L);
+
+        reindexService.reindexOnStartup();
+
+        assertThat(reindexService.getProgress().state()).isEqualTo(SessionReindexService.State.COMPLETED);
+        verify(loadElasticsearchIndex).completeMigration(3L);
+    }
+
+    @Test
+    void refusedSwapFailsTheRun() throws Exception {
+        when(loadElasticsearchIndex.isMigrating()).thenReturn(true);
+        when(elasticsearchSyncService.indexBatch(anyList(), eq(INDEX))).thenReturn(0);
+        when(mongoTemplate.count(any(Query.class), eq(ChatSession.class))).thenReturn(3L);
+        doThrow(new IllegalStateException("Index chat-sessions-v1 holds 2 of 3 sessions"))
+                .when(loadElasticsearchIndex).completeMigration(3L);
+
+        reindexService.reindexOnStartup();
+
+        assertThat(reindexService.getProgress().state()).isEqualTo(SessionReindexService.State.FAILED);
+        ArgumentCaptor<ReindexCheckpoint> saved = ArgumentCaptor.forClass(ReindexCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(saved.capture());
+        assertThat(saved.getValue().getCompletedAt()).isNull();
+    }
+
+    private static ChatSession session(String id) {
+        return ChatSession.builder().id(id).documentId("doc-1").documentName("report.pdf").build();
+    }
+}
@@ -0,0 +1,79 @@
+package com.docqa.service.llm;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local HTTP server answering the two Ollama endpoints the backend pool uses
+class FakeOllama implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private final String answer;
+    private final AtomicInteger chatRequests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    FakeOllama(String answer) throws IOException {
+        this.answer = answer;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/chat", this::chat);
+        server.createContext("/api/tags", exchange -> respond(exchange, "{\"models\":[]}"));
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    int chatRequests() {
+        return chatRequests.get();
+    }
+
+    void failWith(int status) {
+        this.status = status;
+    }
+
+    // Chat responses wait for the latch, standing in for a slow generation
+    void holdResponsesUntil(CountDownLatch release) {
+        this.release = release;
+    }
+
+    private void chat(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        chatRequests.incrementAndGet();
+        try {
+            release.await(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        respond(exchange, "{\"model\":\"llama3.1:8b\",\"created_at\":\"2025-01-01T00:00:00Z\","
+                + "\"message\":{\"role\":\"assistant\",\"content\":\"" + answer + "\"},\"done\":true,\"done_reason\":\"stop\"}");
+    }
+
+    private void respond(HttpExchange exchange, String body) throws IOException {
+        int currentStatus = status;
+        byte[] bytes = (currentStatus == 200 ? body : "{\"error\":\"backend down\"}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(currentStatus, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+}
@@ -0,0 +1,117 @@
+package com.docqa.service.llm;
+
+import com.docqa.config.OllamaBackendProperties;
+import com.docqa.util.ThreadFactories;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Memory held per in-flight chat with one platform or one virtual thread per request, run with: mvn test -Pbenchmark
+// Each chat blocks in the model gateway or on a held response from a local fake Ollama, Mongo and Elasticsearch are left out
+@Tag("benchmark")
+class InFlightChatBenchmarkTest {
+
+    private static final int CHATS = 2000;
+    private static final int MAX_CONCURRENT = 2;
+    private static final double GB = 1024.0 * 1024 * 1024;
+
+    @Test
+    void inFlightChatsPerGigabyte() throws Exception {
+        run(false);
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        System.out.printf("%d in-flight chats, %d on Ollama and the rest queued in the model gateway%n", CHATS, MAX_CONCURRENT);
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-8s threads: heap %.1f KB and RSS %.1f KB per chat, %,.0f chats per GB of heap, %,.0f per GB of RSS, all done %dms after release%n",
+                    result.mode(), result.heapBytes() / 1024.0 / CHATS, result.rssBytes() / 1024.0 / CHATS,
+                    CHATS / Math.max(result.heapBytes() / GB, 1e-9), CHATS / Math.max(result.rssBytes() / GB, 1e-9), result.drainMillis());
+        }
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        try (FakeOllama ollama = new FakeOllama("Answer");
+             ExecutorService requests = Executors.newThreadPerTaskExecutor(ThreadFactories.named("chat-", virtualThreads))) {
+            ollama.holdResponsesUntil(release);
+            ModelGateway modelGateway = new ModelGateway(meterRegistry, MAX_CONCURRENT, CHATS, Duration.ofMinutes(5), Duration.ofSeconds(1));
+            OllamaService ollamaService = new OllamaService(pool(meterRegistry, ollama), modelGateway, "llama3.2:1b");
+
+            long heapBefore = usedHeapAfterGc();
+            long rssBefore = rssBytes();
+
+            List<Future<String>> chats = new ArrayList<>();
+            for (int i = 0; i < CHATS; i++) {
+                String sessionId = "session-" + i;
+                chats.add(requests.submit(() -> ollamaService.generateText("What is the notice period?", ModelPriority.INTERACTIVE, sessionId)));
+            }
+            while (modelGateway.queueDepth() < CHATS - MAX_CONCURRENT || ollama.chatRequests() < MAX_CONCURRENT) {
+                Thread.sleep(10);
+            }
+
+            long heapInFlight = usedHeapAfterGc();
+            long rssInFlight = rssBytes();
+
+            long startTime = System.nanoTime();
+            release.countDown();
+            for (Future<String> chat : chats) {
+                assertThat(chat.get(5, TimeUnit.MINUTES)).isEqualTo("Answer");
+            }
+            long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            return new Result(virtualThreads ? "virtual" : "platform", heapInFlight - heapBefore, rssInFlight - rssBefore, drainMillis);
+        }
+    }
+
+    private static OllamaBackendPool pool(SimpleMeterRegistry meterRegistry, FakeOllama ollama) {
+        OllamaChatModel defaultChatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().build())
+                .defaultOptions(OllamaChatOptions.builder().model("llama3.1:8b").build())
+                .build();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        return new OllamaBackendPool(defaultChatModel, beanFactory.getBeanProvider(RestClient.Builder.class),
+                beanFactory.getBeanProvider(WebClient.Builder.class), meterRegistry,
+                new OllamaBackendProperties(List.of(ollama.baseUrl())), ollama.baseUrl(), 3, 1, CHATS);
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // Resident set of the test JVM, which is where platform thread stacks show up
+    private static long rssBytes() throws Exception {
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+            }
+        }
+        return 0;
+    }
+
+    private record Result(String mode, long heapBytes, long rssBytes, long drainMillis) {
+    }
+}
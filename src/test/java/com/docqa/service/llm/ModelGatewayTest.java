@@ -0,0 +1,129 @@
+package com.docqa.service.llm;
+
+import com.docqa.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ModelGatewayTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void interactiveRequestIsServedBeforeAnEarlierBackgroundOne() throws Exception {
+        ModelGateway gateway = gateway(1, 4, Duration.ofSeconds(10));
+        gateway.acquire(ModelPriority.INTERACTIVE);
+
+        List<ModelPriority> served = new CopyOnWriteArrayList<>();
+        Future<?> background = callers.submit(() -> serve(gateway, ModelPriority.BACKGROUND, served));
+        awaitUntil(() -> gateway.queueDepth() == 1);
+        Future<?> interactive = callers.submit(() -> serve(gateway, ModelPriority.INTERACTIVE, served));
+        awaitUntil(() -> gateway.queueDepth() == 2);
+
+        gateway.release();
+        interactive.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+
+        assertThat(served).containsExactly(ModelPriority.INTERACTIVE, ModelPriority.BACKGROUND);
+        assertThat(gateway.activeRequests()).isZero();
+    }
+
+    @Test
+    void waiterPastTheQueueDeadlineIsRejectedWithRetryAfter() {
+        ModelGateway gateway = gateway(1, 4, Duration.ofMillis(100));
+        gateway.acquire(ModelPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> gateway.acquire(ModelPriority.INTERACTIVE))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("Timed out")
+                .extracting(e -> ((ServiceUnavailableException) e).getRetryAfterSeconds()).isEqualTo(7L);
+
+        // The rejected waiter left the queue, so the held slot is freed rather than handed to it
+        assertThat(gateway.queueDepth()).isZero();
+        gateway.release();
+        assertThat(gateway.activeRequests()).isZero();
+        assertThat(meterRegistry.get("model.gateway.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void fullQueueRejectsWithoutWaiting() throws Exception {
+        ModelGateway gateway = gateway(1, 1, Duration.ofSeconds(10));
+        gateway.acquire(ModelPriority.INTERACTIVE);
+        Future<?> queued = callers.submit(() -> serve(gateway, ModelPriority.INTERACTIVE, new CopyOnWriteArrayList<>()));
+        awaitUntil(() -> gateway.queueDepth() == 1);
+
+        long startTime = System.nanoTime();
+        assertThatThrownBy(() -> gateway.acquire(ModelPriority.INTERACTIVE))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessageContaining("at capacity");
+        assertThat(Duration.ofNanos(System.nanoTime() - startTime)).isLessThan(Duration.ofSeconds(1));
+
+        gateway.release();
+        queued.get(5, TimeUnit.SECONDS);
+        assertThat(gateway.activeRequests()).isZero();
+    }
+
+    @Test
+    void failedCallGivesItsSlotToTheNextWaiter() throws Exception {
+        ModelGateway gateway = gateway(1, 4, Duration.ofSeconds(10));
+        Future<?> failing = callers.submit(() -> {
+            gateway.acquire(ModelPriority.INTERACTIVE);
+            try {
+                awaitUntil(() -> gateway.queueDepth() == 1);
+                throw new IllegalStateException("model call failed");
+            } finally {
+                gateway.release();
+            }
+        });
+        awaitUntil(() -> gateway.activeRequests() == 1);
+
+        gateway.acquire(ModelPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(gateway.activeRequests()).isEqualTo(1);
+        gateway.release();
+        assertThat(gateway.activeRequests()).isZero();
+    }
+
+    private ModelGateway gateway(int maxConcurrent, int maxQueued, Duration queueDeadline) {
+        return new ModelGateway(meterRegistry, maxConcurrent, maxQueued, queueDeadline, Duration.ofSeconds(7));
+    }
+
+    private static void serve(ModelGateway gateway, ModelPriority priority, List<ModelPriority> served) {
+        gateway.acquire(priority);
+        try {
+            served.add(priority);
+        } finally {
+            gateway.release();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5s");
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.docqa.service.llm;
+
+import com.docqa.exception.ServiceUnavailableException;
+import com.docqa.util.TokenEstimator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ModelRouterTest {
+
+    private static final String PROMPT = "prompt";
+
+    @Mock
+    private OllamaService ollamaService;
+
+    private ModelRouter modelRouter;
+
+    @BeforeEach
+    void setUp() {
+        modelRouter = new ModelRouter(ollamaService, TokenEstimator.charsPerToken(3.5), new SimpleMeterRegistry(), true, 20, 4000, 20);
+    }
+
+    @Test
+    void shortYesOrNoAnswerFromTheSmallModelIsKept() {
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.SMALL))).thenReturn("Yes.");
+
+        assertThat(modelRouter.generate("Is the contract renewable?", PROMPT, ModelPriority.INTERACTIVE, "session-1")).isEqualTo("Yes.");
+        verify(ollamaService, never()).generateText(anyString(), any(), any(), eq(ModelTier.LARGE));
+    }
+
+    @Test
+    void yesOrNoQuestionAnsweredWithoutYesOrNoGoesToTheLargeModel() {
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.SMALL))).thenReturn("Possibly.");
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.LARGE))).thenReturn("No, it expires in 2027.");
+
+        assertThat(modelRouter.generate("Is the contract renewable?", PROMPT, ModelPriority.INTERACTIVE, "session-1"))
+                .isEqualTo("No, it expires in 2027.");
+    }
+
+    @Test
+    void failingSmallModelFallsBackToTheLargeOne() {
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.SMALL)))
+                .thenThrow(new RuntimeException("model \"llama3.2:1b\" not found, try pulling it first"));
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.LARGE))).thenReturn("Ninety days.");
+
+        assertThat(modelRouter.generate("What is the notice period?", PROMPT, ModelPriority.INTERACTIVE, "session-1"))
+                .isEqualTo("Ninety days.");
+    }
+
+    @Test
+    void failingSmallModelFallsBackToStreamingFromTheLargeOne() {
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.SMALL)))
+                .thenThrow(new RuntimeException("model \"llama3.2:1b\" not found, try pulling it first"));
+        when(ollamaService.streamText(PROMPT, "session-1", ModelTier.LARGE)).thenReturn(Flux.just("Ninety ", "days."));
+
+        assertThat(modelRouter.stream("What is the notice period?", PROMPT, "session-1").collectList().block())
+                .containsExactly("Ninety ", "days.");
+    }
+
+    @Test
+    void modelAtCapacityIsNotRetriedOnTheLargeModel() {
+        when(ollamaService.generateText(eq(PROMPT), any(), any(), eq(ModelTier.SMALL)))
+                .thenThrow(new ServiceUnavailableException("Model is at capacity, please retry later", 10));
+
+        assertThatThrownBy(() -> modelRouter.generate("What is the notice period?", PROMPT, ModelPriority.INTERACTIVE, "session-1"))
+                .isInstanceOf(ServiceUnavailableException.class);
+        verify(ollamaService, never()).generateText(anyString(), any(), any(), eq(ModelTier.LARGE));
+    }
+}
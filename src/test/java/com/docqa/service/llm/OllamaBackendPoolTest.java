@@ -0,0 +1,149 @@
+package com.docqa.service.llm;
+
+import com.docqa.config.OllamaBackendProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OllamaBackendPoolTest {
+
+    private static final int EJECT_AFTER_FAILURES = 2;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private FakeOllama first;
+    private FakeOllama second;
+    private OllamaBackendPool pool;
+    private ModelGateway modelGateway;
+    private OllamaService ollamaService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        first = new FakeOllama("Answer from first");
+        second = new FakeOllama("Answer from second");
+
+        OllamaChatModel defaultChatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().build())
+                .defaultOptions(OllamaChatOptions.builder().model("llama3.1:8b").build())
+                .build();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        pool = new OllamaBackendPool(defaultChatModel, beanFactory.getBeanProvider(RestClient.Builder.class),
+                beanFactory.getBeanProvider(WebClient.Builder.class), meterRegistry,
+                new OllamaBackendProperties(List.of(first.baseUrl(), second.baseUrl())),
+                "http://127.0.0.1:1", EJECT_AFTER_FAILURES, 1, 100);
+        modelGateway = new ModelGateway(meterRegistry, 2, 2, Duration.ofSeconds(5), Duration.ofSeconds(1));
+        ollamaService = new OllamaService(pool, modelGateway, "llama3.2:1b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void sessionStaysOnTheBackendThatServedItLast() {
+        String firstAnswer = ollamaService.generateText("prompt", ModelPriority.INTERACTIVE, "session-1");
+        String secondAnswer = ollamaService.generateText("prompt", ModelPriority.INTERACTIVE, "session-1");
+
+        assertThat(secondAnswer).isEqualTo(firstAnswer);
+        assertThat(first.chatRequests() + second.chatRequests()).isEqualTo(2);
+        assertThat(Math.max(first.chatRequests(), second.chatRequests())).isEqualTo(2);
+    }
+
+    @Test
+    void failedRequestIsRetriedOnTheOtherBackend() {
+        first.failWith(500);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(ollamaService.generateText("prompt", ModelPriority.INTERACTIVE, "session-" + i)).isEqualTo("Answer from second");
+        }
+        assertThat(second.chatRequests()).isEqualTo(4);
+    }
+
+    @Test
+    void failingBackendIsEjectedAndReturnsOnceHealthy() {
+        first.failWith(500);
+        for (int i = 0; i < EJECT_AFTER_FAILURES; i++) {
+            pool.checkHealth();
+        }
+        assertThat(healthy()).containsExactly(second.baseUrl());
+
+        // Requests no longer reach the ejected backend at all
+        ollamaService.generateText("prompt", ModelPriority.INTERACTIVE, null);
+        assertThat(first.chatRequests()).isZero();
+
+        first.failWith(200);
+        pool.checkHealth();
+        assertThat(healthy()).containsExactlyInAnyOrder(first.baseUrl(), second.baseUrl());
+    }
+
+    @Test
+    void failedGenerationGivesBackItsSlot() {
+        first.failWith(500);
+        second.failWith(500);
+
+        assertThatThrownBy(() -> ollamaService.generateText("prompt", ModelPriority.INTERACTIVE, "session-1"))
+                .isInstanceOf(RuntimeException.class);
+        assertThat(modelGateway.activeRequests()).isZero();
+    }
+
+    @Test
+    void warmUpIsSkippedWhileEverySlotIsTaken() {
+        modelGateway.acquire(ModelPriority.INTERACTIVE);
+        modelGateway.acquire(ModelPriority.INTERACTIVE);
+
+        assertThat(ollamaService.warmUp("document prefix", "session-1")).isFalse();
+        assertThat(first.chatRequests() + second.chatRequests()).isZero();
+        assertThat(modelGateway.activeRequests()).isEqualTo(2);
+
+        modelGateway.release();
+        assertThat(ollamaService.warmUp("document prefix", "session-1")).isTrue();
+    }
+
+    @Test
+    void streamWaitsForTheModelOffTheSubscribingThread() throws Exception {
+        modelGateway.acquire(ModelPriority.INTERACTIVE);
+        modelGateway.acquire(ModelPriority.INTERACTIVE);
+
+        // Subscribing returns at once although every slot is taken
+        List<String> tokens = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        long startTime = System.nanoTime();
+        ollamaService.streamText("prompt", "session-1").subscribe(tokens::add, error -> { }, completed::countDown);
+        assertThat(Duration.ofNanos(System.nanoTime() - startTime)).isLessThan(Duration.ofSeconds(1));
+        assertThat(tokens).isEmpty();
+
+        modelGateway.release();
+        assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(tokens).singleElement().isIn("Answer from first", "Answer from second");
+
+        // The slot is given back right after completion is signalled
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (modelGateway.activeRequests() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(modelGateway.activeRequests()).isEqualTo(1);
+    }
+
+    private List<String> healthy() {
+        return List.of(first.baseUrl(), second.baseUrl()).stream()
+                .filter(url -> meterRegistry.get("ollama.backend.healthy").tag("backend", url).gauge().value() == 1)
+                .toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.docqa.service.llm;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Time to first token of the opening question with and without a warmed-up document prefix, needs a running Ollama:
+// OLLAMA_BASE_URL=http://localhost:11434 mvn test -Pbenchmark
+@Tag("benchmark")
+class WarmUpBenchmarkTest {
+
+    private static final String MODEL = "llama3.1:8b";
+    private static final int NUM_CTX = 8192;
+    private static final int PREFIX_CHARS = 20000;
+    private static final int RUNS = 3;
+    private static final String QUESTION = "\n\nQuestion: what does the agreement say about delivery delays?";
+
+    @Test
+    void timeToFirstTokenWithAndWithoutWarmUp() {
+        String baseUrl = System.getenv("OLLAMA_BASE_URL");
+        assumeTrue(baseUrl != null, "OLLAMA_BASE_URL not set");
+
+        OllamaChatModel chatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(baseUrl).build())
+                .defaultOptions(OllamaChatOptions.builder().model(MODEL).numCtx(NUM_CTX).build())
+                .build();
+
+        // Loads the model, so neither variant pays for that
+        chatModel.call(new Prompt("Reply with OK."));
+
+        long[] cold = new long[RUNS];
+        long[] warm = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            cold[run] = timeToFirstTokenMillis(chatModel, prefix());
+
+            // What OllamaService.warmUp sends when a session is opened
+            String prefix = prefix();
+            chatModel.call(new Prompt(prefix, OllamaChatOptions.builder().numPredict(1).build()));
+            warm[run] = timeToFirstTokenMillis(chatModel, prefix);
+        }
+        Arrays.sort(cold);
+        Arrays.sort(warm);
+        System.out.printf("Time to first token with a %d character document prefix on %s: cold %dms, warmed up %dms (median of %d)%n",
+                PREFIX_CHARS, MODEL, cold[RUNS / 2], warm[RUNS / 2], RUNS);
+    }
+
+    private static long timeToFirstTokenMillis(OllamaChatModel chatModel, String prefix) {
+        long startTime = System.currentTimeMillis();
+        chatModel.stream(new Prompt(prefix + QUESTION)).blockFirst();
+        return System.currentTimeMillis() - startTime;
+    }
+
+    // A fresh document every time, so nothing is already in the prompt cache
+    private static String prefix() {
+        StringBuilder prefix = new StringBuilder("You are a helpful assistant analyzing the following document (")
+                .append(UUID.randomUUID()).append("):\n\n---DOCUMENT START---\n");
+        String sentence = "The supplier shall deliver the goods within thirty days of the order and notify the buyer of any delay. ";
+        while (prefix.length() < PREFIX_CHARS) {
+            prefix.append(sentence);
+        }
+        return prefix.append("\n---DOCUMENT END---\n").toString();
+    }
+}
@@ -0,0 +1,152 @@
+package com.docqa.service.retrieval;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentChunk;
+import com.docqa.model.Role;
+import com.docqa.util.PromptBudget;
+import com.docqa.util.PromptBuilder;
+import com.docqa.util.TextChunker;
+import com.docqa.util.TextTokenizer;
+import com.docqa.util.TokenEstimator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaChatOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Prompt size and time to answer with retrieval against the full document, run with: mvn test -Pbenchmark
+// Time to answer needs a running Ollama: OLLAMA_BASE_URL=http://localhost:11434 mvn test -Pbenchmark
+@Tag("benchmark")
+class RetrievalBenchmarkTest {
+
+    private static final int PAGES = 200;
+    private static final int CHARS_PER_PAGE = 3000;
+    private static final int CHUNK_SIZE = 4000;
+    private static final int TOP_K = 5;
+    private static final String MODEL = "llama3.2";
+
+    // Same defaults as application.yml
+    private static final PromptBudget BUDGET = new PromptBudget(8192, 1024, 0.3);
+    private static final TokenEstimator ESTIMATOR = TokenEstimator.charsPerToken(3.5);
+
+    // Question -> page holding the answer, spread over the document
+    private static final Map<String, Integer> QUESTIONS = Map.of(
+            "What is the penalty for late delivery of turbines?", 3,
+            "Which court has jurisdiction over disputes?", 60,
+            "How long is the warranty on replacement bearings?", 120,
+            "Who pays the insurance premium for stored inventory?", 190);
+    private static final Map<Integer, String> FACTS = Map.of(
+            3, "The penalty for late delivery of turbines is two percent of the order value per week. ",
+            60, "Disputes fall under the jurisdiction of the commercial court of Rotterdam. ",
+            120, "Replacement bearings carry a warranty of eighteen months from installation. ",
+            190, "The insurance premium for stored inventory is paid by the buyer. ");
+
+    @Test
+    void promptSizeWithRetrievalAgainstFullDocument() {
+        List<DocumentChunk> chunks = indexedChunks();
+        Bm25Index index = Bm25Index.build(chunks);
+        String documentText = chunks.stream().map(DocumentChunk::getText).collect(Collectors.joining()).trim();
+
+        long fullTokens = 0;
+        long retrievalTokens = 0;
+        int fullHits = 0;
+        int retrievalHits = 0;
+        for (Map.Entry<String, Integer> question : QUESTIONS.entrySet()) {
+            String fact = FACTS.get(question.getValue());
+            String full = fullDocumentPrompt(documentText, question.getKey());
+            String retrieval = retrievalPrompt(chunks, index, question.getKey());
+            fullTokens += ESTIMATOR.estimate(full);
+            retrievalTokens += ESTIMATOR.estimate(retrieval);
+            fullHits += full.contains(fact) ? 1 : 0;
+            retrievalHits += retrieval.contains(fact) ? 1 : 0;
+        }
+
+        assertThat(retrievalHits).isEqualTo(QUESTIONS.size());
+        System.out.printf("%d-page document (~%d tokens), %d questions with the answer on pages %s%n",
+                PAGES, ESTIMATOR.estimate(documentText), QUESTIONS.size(), QUESTIONS.values().stream().sorted().toList());
+        System.out.printf("Full document: ~%d prompt tokens per question, answer in the prompt for %d of %d%n",
+                fullTokens / QUESTIONS.size(), fullHits, QUESTIONS.size());
+        System.out.printf("Retrieval top-%d: ~%d prompt tokens per question, answer in the prompt for %d of %d%n",
+                TOP_K, retrievalTokens / QUESTIONS.size(), retrievalHits, QUESTIONS.size());
+    }
+
+    @Test
+    void timeToAnswerWithRetrievalAgainstFullDocument() {
+        String baseUrl = System.getenv("OLLAMA_BASE_URL");
+        assumeTrue(baseUrl != null, "OLLAMA_BASE_URL not set");
+
+        OllamaChatModel chatModel = OllamaChatModel.builder()
+                .ollamaApi(OllamaApi.builder().baseUrl(baseUrl).build())
+                .defaultOptions(OllamaChatOptions.builder().model(MODEL).numCtx(BUDGET.contextWindow()).build())
+                .build();
+        List<DocumentChunk> chunks = indexedChunks();
+        Bm25Index index = Bm25Index.build(chunks);
+        String documentText = chunks.stream().map(DocumentChunk::getText).collect(Collectors.joining()).trim();
+
+        // Warm the model up so the first measurement does not include loading it
+        chatModel.call(new Prompt("Reply with OK."));
+        long fullMillis = 0;
+        long retrievalMillis = 0;
+        for (String question : QUESTIONS.keySet()) {
+            fullMillis += timeMillis(chatModel, fullDocumentPrompt(documentText, question));
+            retrievalMillis += timeMillis(chatModel, retrievalPrompt(chunks, index, question));
+        }
+        System.out.printf("Time to answer with %s: full document %dms, retrieval top-%d %dms per question%n",
+                MODEL, fullMillis / QUESTIONS.size(), TOP_K, retrievalMillis / QUESTIONS.size());
+    }
+
+    private static long timeMillis(OllamaChatModel chatModel, String prompt) {
+        long startTime = System.currentTimeMillis();
+        chatModel.call(new Prompt(prompt));
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private static String fullDocumentPrompt(String documentText, String question) {
+        return PromptBuilder.buildContextualPrompt(session(question), documentText, question, BUDGET, ESTIMATOR);
+    }
+
+    private static String retrievalPrompt(List<DocumentChunk> chunks, Bm25Index index, String question) {
+        List<DocumentChunk> excerpts = index.search(TextTokenizer.tokenize(question), TOP_K).stream().map(chunks::get).toList();
+        return PromptBuilder.buildRetrievalPrompt(session(question), excerpts, question, BUDGET, ESTIMATOR);
+    }
+
+    private static ChatSession session(String question) {
+        ChatSession session = new ChatSession("doc-1", "supply-agreement.pdf", "c0ffee");
+        session.addMessage(new ChatMessage(Role.user, question));
+        return session;
+    }
+
+    private static List<DocumentChunk> indexedChunks() {
+        List<String> filler = List.of(
+                "The supplier shall deliver the goods within thirty days of the order and notify the buyer of any delay. ",
+                "Invoices are payable within sixty days and disputed amounts must be raised in writing. ",
+                "Each party shall keep confidential all information received under this agreement. ",
+                "Changes to the specification require a written change order signed by both parties. ");
+        List<String> pages = new ArrayList<>();
+        for (int page = 1; page <= PAGES; page++) {
+            StringBuilder text = new StringBuilder(FACTS.getOrDefault(page, ""));
+            for (int sentence = page; text.length() < CHARS_PER_PAGE; sentence++) {
+                text.append(filler.get(sentence % filler.size()));
+            }
+            pages.add(text.toString());
+        }
+
+        List<DocumentChunk> chunks = TextChunker.chunkPages(pages, CHUNK_SIZE);
+        for (DocumentChunk chunk : chunks) {
+            List<String> tokens = TextTokenizer.tokenize(chunk.getText());
+            chunk.setTokenCount(tokens.size());
+            chunk.setTermFrequencies(TextTokenizer.termFrequencies(tokens));
+        }
+        return chunks;
+    }
+}
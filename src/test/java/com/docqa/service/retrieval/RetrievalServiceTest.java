@@ -0,0 +1,75 @@
+package com.docqa.service.retrieval;
+
+import com.docqa.model.DocumentChunk;
+import com.docqa.repository.DocumentChunkRepository;
+import com.docqa.util.TextTokenizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RetrievalServiceTest {
+
+    private static final int TOP_K = 2;
+
+    @Mock
+    private DocumentChunkRepository documentChunkRepository;
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private final List<DocumentChunk> stored = new ArrayList<>();
+    private RetrievalService retrievalService;
+
+    @BeforeEach
+    void setUp() {
+        retrievalService = new RetrievalService(documentChunkRepository, mongoTemplate, true, TOP_K, 1_000_000);
+        when(mongoTemplate.find(any(Query.class), eq(DocumentChunk.class))).thenAnswer(invocation -> new ArrayList<>(stored));
+    }
+
+    @Test
+    void indexLoadedBeforeTheChunksAreWrittenIsNotCached() {
+        assertThat(retrievalService.usesRetrieval("doc-1")).isFalse();
+
+        stored.addAll(chunks(5));
+        assertThat(retrievalService.usesRetrieval("doc-1")).isTrue();
+        assertThat(retrievalService.usesRetrieval("doc-1")).isTrue();
+
+        // Missed once while empty, loaded once, then served from the cache
+        verify(mongoTemplate, times(2)).find(any(Query.class), eq(DocumentChunk.class));
+    }
+
+    @Test
+    void evictedIndexIsRebuiltFromTheNewChunks() {
+        stored.addAll(chunks(5));
+        assertThat(retrievalService.usesRetrieval("doc-1")).isTrue();
+
+        stored.clear();
+        stored.addAll(chunks(TOP_K));
+        retrievalService.evict("doc-1");
+
+        assertThat(retrievalService.usesRetrieval("doc-1")).isFalse();
+    }
+
+    private List<DocumentChunk> chunks(int count) {
+        return IntStream.range(0, count).mapToObj(sequence -> {
+            List<String> tokens = TextTokenizer.tokenize("Clause " + sequence + " covers termination and notice.");
+            return DocumentChunk.builder().documentId("doc-1").sequence(sequence).pageNumber(sequence + 1)
+                    .tokenCount(tokens.size()).termFrequencies(TextTokenizer.termFrequencies(tokens)).build();
+        }).toList();
+    }
+}
@@ -0,0 +1,49 @@
+package com.docqa.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesBeyondTheWeightLimit() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+        cache.put("c", "cccc");
+
+        assertThat(cache.get("a")).isEqualTo("aaaa");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("cccc");
+        assertThat(cache.weight()).isEqualTo(8);
+    }
+
+    @Test
+    void expiresEntriesAfterTheirTtl() throws InterruptedException {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, String::length, Duration.ofMillis(20));
+        cache.put("a", "aaaa");
+        Thread.sleep(40);
+
+        assertThat(cache.get("a")).isNull();
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsReturnedButNotCached() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, String::length);
+
+        // The writer invalidates while the reader is still loading what it read before the write
+        String loaded = cache.getOrLoad("doc", key -> {
+            cache.invalidate(key);
+            return "old text";
+        });
+
+        assertThat(loaded).isEqualTo("old text");
+        assertThat(cache.get("doc")).isNull();
+        assertThat(cache.getOrLoad("doc", key -> "new text")).isEqualTo("new text");
+        assertThat(cache.get("doc")).isEqualTo("new text");
+    }
+}
@@ -0,0 +1,99 @@
+package com.docqa.util;
+
+import com.docqa.model.ChatMessage;
+import com.docqa.model.ChatSession;
+import com.docqa.model.DocumentChunk;
+import com.docqa.model.Role;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PromptBuilderTest {
+
+    private static final PromptBudget BUDGET = new PromptBudget(4096, 1024, 0.3);
+    private static final TokenEstimator ESTIMATOR = TokenEstimator.charsPerToken(3.5);
+
+    private static final String SHORT = "What is the notice period?";
+    private static final String HUGE = words(200_000);
+
+    @Test
+    void promptNeverExceedsTheBudget() {
+        for (String documentText : List.of(SHORT, HUGE)) {
+            for (String turn : List.of(SHORT, HUGE)) {
+                for (String question : List.of(SHORT, HUGE)) {
+                    for (String summary : new String[]{null, HUGE}) {
+                        ChatSession session = session(turn, 10, question);
+                        session.setConversationSummary(summary);
+
+                        String prompt = PromptBuilder.buildContextualPrompt(session, documentText, question, BUDGET, ESTIMATOR);
+
+                        assertThat(ESTIMATOR.estimate(prompt)).isLessThanOrEqualTo(BUDGET.promptTokens());
+                        assertThat(prompt).contains("Current question:\n");
+                        if (turn.equals(SHORT)) {
+                            // A huge question or document never pushes out a short history
+                            assertThat(prompt).contains("Previous conversation:\n");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void retrievalPromptNeverExceedsTheBudget() {
+        List<DocumentChunk> excerpts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            excerpts.add(DocumentChunk.builder().documentId("doc-1").sequence(i).pageNumber(i + 1).text(words(300)).build());
+        }
+        ChatSession session = session(HUGE, 10, HUGE);
+
+        String prompt = PromptBuilder.buildRetrievalPrompt(session, excerpts, HUGE, BUDGET, ESTIMATOR);
+
+        assertThat(ESTIMATOR.estimate(prompt)).isLessThanOrEqualTo(BUDGET.promptTokens());
+        assertThat(prompt).contains("---EXCERPT (page 1)---");
+    }
+
+    @Test
+    void historyKeepsTheRoleOfEachMessage() {
+        ChatSession session = new ChatSession("doc-1", "contract.pdf", "c0ffee");
+        session.addMessage(new ChatMessage(Role.user, "Who are the parties?"));
+        session.addMessage(new ChatMessage(Role.assistant, "Acme and Globex."));
+        session.addMessage(new ChatMessage(Role.user, SHORT));
+
+        String prompt = PromptBuilder.buildContextualPrompt(session, "The agreement text.", SHORT, BUDGET, ESTIMATOR);
+
+        assertThat(prompt).contains("Previous conversation:\nUser: Who are the parties?\nAssistant: Acme and Globex.\n\n");
+        assertThat(prompt).doesNotContain("User: " + SHORT);
+    }
+
+    @Test
+    void documentPrefixDoesNotDependOnTheTurn() {
+        String first = PromptBuilder.buildContextualPrompt(session(SHORT, 2, SHORT), HUGE, SHORT, BUDGET, ESTIMATOR);
+        String later = PromptBuilder.buildContextualPrompt(session(HUGE, 10, HUGE), HUGE, HUGE, BUDGET, ESTIMATOR);
+
+        String prefix = PromptBuilder.documentPrefix(HUGE, BUDGET, ESTIMATOR);
+        assertThat(first).startsWith(prefix);
+        assertThat(later).startsWith(prefix);
+    }
+
+    // Alternating turns with the given content, then the current question as the last message
+    private static ChatSession session(String turn, int turns, String question) {
+        ChatSession session = new ChatSession("doc-1", "contract.pdf", "c0ffee");
+        for (int i = 0; i < turns; i++) {
+            session.addMessage(new ChatMessage(i % 2 == 0 ? Role.user : Role.assistant, turn));
+        }
+        session.addMessage(new ChatMessage(Role.user, question));
+        return session;
+    }
+
+    private static String words(int count) {
+        StringBuilder text = new StringBuilder(count * 6);
+        for (int i = 0; i < count; i++) {
+            text.append("word").append(i % 10).append(' ');
+        }
+        return text.toString();
+    }
+}
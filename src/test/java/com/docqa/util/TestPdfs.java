@@ -0,0 +1,40 @@
+package com.docqa.util;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public class TestPdfs {
+
+    // Text-only pages, every line names its page so extraction order can be checked
+    public static Path generate(Path pdfFile, int pages, int linesPerPage) throws IOException {
+        PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+        try (PDDocument document = new PDDocument()) {
+            for (int page = 1; page <= pages; page++) {
+                PDPage pdPage = new PDPage();
+                document.addPage(pdPage);
+                try (PDPageContentStream content = new PDPageContentStream(document, pdPage)) {
+                    content.beginText();
+                    content.setFont(font, 9);
+                    content.setLeading(14);
+                    content.newLineAtOffset(40, 750);
+                    for (int line = 0; line < linesPerPage; line++) {
+                        content.showText("Page " + page + " line " + line + ": the supplier shall deliver the goods within thirty days of the order.");
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(pdfFile.toFile());
+        }
+        return pdfFile;
+    }
+}